@@ -15,15 +15,16 @@ REM Compilation step (once at the beginning)
 set /p compile_choice="Do you want to compile the project? (y/n): "
 if /i "%compile_choice%"=="y" (
     echo Compiling the project...
-    javac -d bin src\*.java
+    call :build
     
     REM Check if compilation was successful
-    if %ERRORLEVEL% NEQ 0 (
+    if !ERRORLEVEL! NEQ 0 (
         echo Compilation failed!
         exit /b 1
     )
     echo Compilation successful!
 )
+call :set_launcher
 
 REM Clear the screen
 cls
@@ -49,63 +50,64 @@ set /p action_choice="Enter your choice (1-12): "
 if "%action_choice%"=="1" (
     REM Initialize game
     call :get_game_name
-    set cmd=java -cp bin CrazyEights --init --game !game_name!
+    set cmd=!java_run! CrazyEights --init --game !game_name!
 ) else if "%action_choice%"=="2" (
     REM Add user
     call :get_game_name
     call :get_username
-    set cmd=java -cp bin CrazyEights --add-user !username! --game !game_name!
+    set cmd=!java_run! CrazyEights --add-user !username! --game !game_name!
 ) else if "%action_choice%"=="3" (
     REM Remove user
     call :get_game_name
     call :get_username
-    set cmd=java -cp bin CrazyEights --remove-user !username! --game !game_name!
+    set cmd=!java_run! CrazyEights --remove-user !username! --game !game_name!
 ) else if "%action_choice%"=="4" (
     REM Start game
     call :get_game_name
-    set cmd=java -cp bin CrazyEights --start --game !game_name!
+    set cmd=!java_run! CrazyEights --start --game !game_name!
 ) else if "%action_choice%"=="5" (
     REM Get turn order
     call :get_game_name
     call :get_username
-    set cmd=java -cp bin CrazyEights --order --user !username! --game !game_name!
+    set cmd=!java_run! CrazyEights --order --user !username! --game !game_name!
 ) else if "%action_choice%"=="6" (
     REM Play card
     call :get_game_name
     call :get_username
     set /p card="Enter card to play (e.g., 'H8' for Eight of Hearts): "
-    set cmd=java -cp bin CrazyEights --play !card! --user !username! --game !game_name!
+    set cmd=!java_run! CrazyEights --play !card! --user !username! --game !game_name!
 ) else if "%action_choice%"=="7" (
     REM Get cards
     call :get_game_name
     call :get_username
     set /p cards_username="Enter username to get cards for: "
-    set cmd=java -cp bin CrazyEights --cards !cards_username! --user !username! --game !game_name!
+    set cmd=!java_run! CrazyEights --cards !cards_username! --user !username! --game !game_name!
 ) else if "%action_choice%"=="8" (
     REM Draw card
     call :get_game_name
     call :get_username
-    set cmd=java -cp bin CrazyEights --draw --user !username! --game !game_name!
+    set cmd=!java_run! CrazyEights --draw --user !username! --game !game_name!
 ) else if "%action_choice%"=="9" (
     REM Pass turn
     call :get_game_name
     call :get_username
-    set cmd=java -cp bin CrazyEights --pass --user !username! --game !game_name!
+    set cmd=!java_run! CrazyEights --pass --user !username! --game !game_name!
 ) else if "%action_choice%"=="10" (
     REM Manual mode
     set /p args="Enter all arguments (e.g. --draw --user alice --game test): "
-    set cmd=java -cp bin CrazyEights !args!
+    set cmd=!java_run! CrazyEights !args!
 ) else if "%action_choice%"=="11" (
     REM Recompile
     echo Recompiling the project...
-    javac -d bin src\*.java
+    call :build
     
     REM Check if compilation was successful
-    if %ERRORLEVEL% EQU 0 (
+    if !ERRORLEVEL! EQU 0 (
         echo Recompilation successful!
     ) else (
         echo Recompilation failed!
     )
+    call :set_launcher
     goto main_loop
 ) else if "%action_choice%"=="12" (
     echo Exiting CrazyEights. Goodbye!
@@ -138,4 +140,26 @@ if "!username!"=="" (
     echo Username cannot be empty!
     goto get_username
 )
-exit /b 0
\ No newline at end of file
+exit /b 0
+
+REM Compile the project, fuzz the game rules, check the shared state under contention, package it and generate the AppCDS archive
+REM Inline string concatenation avoids bootstrapping invokedynamic on every launch
+:build
+javac -XDstringConcat=inline -d bin src\*.java || exit /b 1
+REM Fixed seed so that every build checks the same sequences, run GameFuzzer without a seed to explore new ones
+java -cp bin GameFuzzer 10000 1 || exit /b 1
+java -cp bin StateContention || exit /b 1
+if not exist "lib" mkdir lib
+jar --create --file lib\crazy-eights.jar -C bin . || exit /b 1
+if exist "lib\crazy-eights.jsa" del lib\crazy-eights.jsa
+java -XX:ArchiveClassesAtExit=lib\crazy-eights.jsa -cp lib\crazy-eights.jar StartupBenchmark --train >nul 2>&1 || echo AppCDS archive not generated, running without it.
+exit /b 0
+
+REM Pick the fastest launcher available
+:set_launcher
+if exist "lib\crazy-eights.jsa" (
+    set java_run=java -XX:SharedArchiveFile=lib\crazy-eights.jsa -cp lib\crazy-eights.jar
+) else (
+    set java_run=java -cp bin
+)
+exit /b 0
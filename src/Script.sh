@@ -10,11 +10,34 @@ if [ ! -d "bin" ]; then
     mkdir -p bin
 fi
 
+# Function to compile the project, fuzz the game rules, check the shared state under contention, package it and generate the AppCDS archive
+# Inline string concatenation avoids bootstrapping invokedynamic on every launch
+build() {
+    javac -XDstringConcat=inline -d bin src/*.java || return 1
+    # Fixed seed so that every build checks the same sequences, run GameFuzzer without a seed to explore new ones
+    java -cp bin GameFuzzer 10000 1 || return 1
+    java -cp bin StateContention || return 1
+    mkdir -p lib
+    jar --create --file lib/crazy-eights.jar -C bin . || return 1
+    rm -f lib/crazy-eights.jsa
+    java -XX:ArchiveClassesAtExit=lib/crazy-eights.jsa -cp lib/crazy-eights.jar StartupBenchmark --train > /dev/null 2>&1 \
+        || echo "AppCDS archive not generated, running without it."
+}
+
+# Function to pick the fastest launcher available
+set_launcher() {
+    if [ -f "lib/crazy-eights.jsa" ]; then
+        java_run="java -XX:SharedArchiveFile=lib/crazy-eights.jsa -cp lib/crazy-eights.jar"
+    else
+        java_run="java -cp bin"
+    fi
+}
+
 # Compilation step (once at the beginning)
 read -p "Do you want to compile the project? (y/n): " compile_choice 
 if [[ $compile_choice == "y" || $compile_choice == "Y" ]]; then 
     echo "Compiling the project..."
-    javac -d bin src/*.java
+    build
     
     # Check if compilation was successful
     if [ $? -eq 0 ]; then
@@ -24,6 +47,7 @@ if [[ $compile_choice == "y" || $compile_choice == "Y" ]]; then
         exit 1
     fi
 fi
+set_launcher
 
 # Function to get game name
 get_game_name() {
@@ -70,56 +94,56 @@ while true; do
     case $action_choice in
         1)  # Initialize game
             game_name=$(get_game_name)
-            cmd="java -cp bin CrazyEights --init --game $game_name"
+            cmd="$java_run CrazyEights --init --game $game_name"
             ;;
         2)  # Add user
             game_name=$(get_game_name)
             username=$(get_username)
-            cmd="java -cp bin CrazyEights --add-user $username --game $game_name"
+            cmd="$java_run CrazyEights --add-user $username --game $game_name"
             ;;
         3)  # Remove user
             game_name=$(get_game_name)
             username=$(get_username)
-            cmd="java -cp bin CrazyEights --remove-user $username --game $game_name"
+            cmd="$java_run CrazyEights --remove-user $username --game $game_name"
             ;;
         4)  # Start game
             game_name=$(get_game_name)
-            cmd="java -cp bin CrazyEights --start --game $game_name"
+            cmd="$java_run CrazyEights --start --game $game_name"
             ;;
         5)  # Get turn order
             game_name=$(get_game_name)
             username=$(get_username)
-            cmd="java -cp bin CrazyEights --order --user $username --game $game_name"
+            cmd="$java_run CrazyEights --order --user $username --game $game_name"
             ;;
         6)  # Play card
             game_name=$(get_game_name)
             username=$(get_username)
             read -p "Enter card to play (e.g., 'H8' for Eight of Hearts): " card
-            cmd="java -cp bin CrazyEights --play $card --user $username --game $game_name"
+            cmd="$java_run CrazyEights --play $card --user $username --game $game_name"
             ;;
         7)  # Get cards
             game_name=$(get_game_name)
             username=$(get_username)
             read -p "Enter username to get cards for: " cards_username
-            cmd="java -cp bin CrazyEights --cards $cards_username --user $username --game $game_name"
+            cmd="$java_run CrazyEights --cards $cards_username --user $username --game $game_name"
             ;;
         8)  # Draw card
             game_name=$(get_game_name)
             username=$(get_username)
-            cmd="java -cp bin CrazyEights --draw --user $username --game $game_name"
+            cmd="$java_run CrazyEights --draw --user $username --game $game_name"
             ;;
         9)  # Pass turn
             game_name=$(get_game_name)
             username=$(get_username)
-            cmd="java -cp bin CrazyEights --pass --user $username --game $game_name"
+            cmd="$java_run CrazyEights --pass --user $username --game $game_name"
             ;;
         10) # Manual mode
             read -p "Enter all arguments (e.g. --draw --user alice --game test): " args
-            cmd="java -cp bin CrazyEights $args"
+            cmd="$java_run CrazyEights $args"
             ;;
         11) # Recompile
             echo "Recompiling the project..."
-            javac -d bin src/*.java
+            build
             
             # Check if compilation was successful
             if [ $? -eq 0 ]; then
@@ -127,6 +151,7 @@ while true; do
             else
                 echo "Recompilation failed!"
             fi
+            set_launcher
             continue
             ;;
         12) # Exit
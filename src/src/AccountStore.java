@@ -0,0 +1,280 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class AccountStore {
+    private static final int NAME_BYTES = 32;                           // Max username length (UTF-8 bytes)
+    private static final int HASH_BYTES = 32;                           // SHA3-256 digest length
+    private static final int RECORD_BYTES = 1 + NAME_BYTES + HASH_BYTES; // Format: [name length][name][hash]
+    private static final int HEADER_BYTES = 8;                          // Format: [levels][count]
+    private static final int INITIAL_CAPACITY = 64;                    // Slots of the first index level
+    private static final int MAX_LEVELS = 20;                           // About 33 million accounts
+
+    // One store per directory: FileChannel locks belong to the whole JVM, so threads must share the monitor
+    private static final ConcurrentHashMap<Path, AccountStore> STORES = new ConcurrentHashMap<>();
+
+    private final Path recordsFile; // Fixed size account records, account id = record position
+    private final Path indexFile;   // Open addressing hash tables of (account id + 1), 0 = empty slot, one level per doubling
+
+    /** Constructor: open (or create) the account store in a directory
+     * * @param dir the directory holding the account files
+     */
+    private AccountStore(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        this.recordsFile = dir.resolve("accounts.dat");
+        this.indexFile = dir.resolve("accounts.idx");
+    }
+
+    /** open: get the account store of a directory, shared by every game in this JVM
+     * * @param dir the directory holding the account files
+     * * @return the account store
+     */
+    public static AccountStore open(Path dir) throws IOException {
+        Path key = dir.toAbsolutePath().normalize();
+        AccountStore store = STORES.get(key);
+        if (store != null) return store;
+        AccountStore created = new AccountStore(key);
+        store = STORES.putIfAbsent(key, created);
+        return store != null ? store : created;
+    }
+
+    /** find: look up an account id by username
+     * * @param username the username to look up
+     * * @return the account id, or -1 if the account doesn't exist
+     */
+    public synchronized int find(String username) throws IOException {
+        byte[] name = encodeName(username);
+        if (!Files.exists(recordsFile)) return -1;
+        if (!Files.exists(indexFile)) repairIndex();
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ);
+             FileChannel records = FileChannel.open(recordsFile, StandardOpenOption.READ);
+             FileLock lock = index.lock(0, Long.MAX_VALUE, true)) {
+            if (isIndexValid(index, records)) return lookup(index, records, readInt(index, 0), name);
+        }
+
+        // The index is truncated or stale: rebuild it under the exclusive lock and look again
+        repairIndex();
+        return find(username);
+    }
+
+    /** repairIndex: rebuild a missing or damaged index from the records file */
+    private void repairIndex() throws IOException {
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileChannel records = FileChannel.open(recordsFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = index.lock()) {
+            if (!isIndexValid(index, records)) rebuildIndex(index, records);
+        }
+    }
+
+    /** create: add a new account to the store
+     * * @param username the username of the new account
+     * * @param hashedPassword the Base64 encoded SHA3-256 password hash
+     * * @return the id of the new account
+     */
+    public synchronized int create(String username, String hashedPassword) throws IOException {
+        byte[] name = encodeName(username);
+        byte[] hash = Base64.getDecoder().decode(hashedPassword);
+        if (hash.length != HASH_BYTES) throw new IllegalArgumentException("Invalid password hash length: " + hash.length);
+
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileChannel records = FileChannel.open(recordsFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = index.lock()) {
+            if (!isIndexValid(index, records)) rebuildIndex(index, records);
+            int levels = readInt(index, 0);
+            int count = readInt(index, 4);
+            if (lookup(index, records, levels, name) >= 0) throw new IllegalArgumentException("Account already exists: " + username);
+
+            // The id decides the level, a new level is appended when the last one is half full, existing levels are never rewritten
+            int id = count;
+            int level = levelOf(id);
+            if (level >= MAX_LEVELS) throw new IllegalStateException("Account store is full: " + count);
+            if (level == levels) {
+                writeFully(index, ByteBuffer.allocate(levelCapacity(level) * 4), slotOffset(level, 0));
+                writeInt(index, 0, ++levels);
+            }
+
+            // Append the record, then publish it in the index
+            ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+            record.put((byte) name.length).put(Arrays.copyOf(name, NAME_BYTES)).put(hash).flip();
+            writeFully(records, record, (long) id * RECORD_BYTES);
+            writeInt(index, slotOffset(level, probe(index, records, level, name)), id + 1);
+            writeInt(index, 4, count + 1);
+            return id;
+        }
+    }
+
+    /** getUsername: get the username of an account
+     * * @param id the account id
+     * * @return the username of the account
+     */
+    public synchronized String getUsername(int id) throws IOException {
+        ByteBuffer record = readRecord(id);
+        int length = record.get(0);
+        return new String(record.array(), 1, length, StandardCharsets.UTF_8);
+    }
+
+    /** getPasswordHash: get the password hash of an account
+     * * @param id the account id
+     * * @return the Base64 encoded password hash
+     */
+    public synchronized String getPasswordHash(int id) throws IOException {
+        ByteBuffer record = readRecord(id);
+        return Base64.getEncoder().encodeToString(Arrays.copyOfRange(record.array(), 1 + NAME_BYTES, RECORD_BYTES));
+    }
+
+    /** readRecord: read a single account record by id
+     * * @param id the account id
+     * * @return the raw record bytes
+     */
+    private ByteBuffer readRecord(int id) throws IOException {
+        if (id < 0 || !Files.exists(recordsFile)) throw new IllegalArgumentException("Unknown account id: " + id);
+        try (FileChannel records = FileChannel.open(recordsFile, StandardOpenOption.READ)) {
+            if ((long) (id + 1) * RECORD_BYTES > records.size()) throw new IllegalArgumentException("Unknown account id: " + id);
+            ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+            readFully(records, record, (long) id * RECORD_BYTES);
+            return record;
+        }
+    }
+
+    /** lookup: find a username in every index level
+     * * @param index the index channel
+     * * @param records the records channel
+     * * @param levels the number of index levels
+     * * @param name the encoded username
+     * * @return the account id, or -1 if the account doesn't exist
+     */
+    private static int lookup(FileChannel index, FileChannel records, int levels, byte[] name) throws IOException {
+        for (int level = levels - 1; level >= 0; level--) {
+            int entry = readInt(index, slotOffset(level, probe(index, records, level, name)));
+            if (entry != 0) return entry - 1;
+        }
+        return -1;
+    }
+
+    /** probe: find the slot holding a username in one index level, or the empty slot where it belongs
+     * * @param index the index channel
+     * * @param records the records channel
+     * * @param level the index level
+     * * @param name the encoded username
+     * * @return the slot number within the level
+     */
+    private static int probe(FileChannel index, FileChannel records, int level, byte[] name) throws IOException {
+        int capacity = levelCapacity(level);
+        int mask = capacity - 1;
+        int h = Arrays.hashCode(name);
+        h ^= (h >>> 16);
+        ByteBuffer stored = ByteBuffer.allocate(1 + NAME_BYTES);
+        for (int i = 0; i < capacity; i++) {
+            int slot = (h + i) & mask;
+            int entry = readInt(index, slotOffset(level, slot));
+            if (entry == 0) return slot; // Empty slot: the name isn't in this level
+
+            // Compare against the stored record name
+            stored.clear();
+            readFully(records, stored, (long) (entry - 1) * RECORD_BYTES);
+            int length = stored.get(0);
+            if (length == name.length && Arrays.equals(stored.array(), 1, 1 + length, name, 0, length)) return slot;
+        }
+        throw new IllegalStateException("Account index level is full: " + level);
+    }
+
+    /** rebuildIndex: rewrite the index from the records file, sized for the number of records
+     * * @param index the index channel
+     * * @param records the records channel
+     */
+    private static void rebuildIndex(FileChannel index, FileChannel records) throws IOException {
+        // Clear the header and every slot of the levels the records need
+        int count = (int) (records.size() / RECORD_BYTES);
+        int levels = levelsFor(count);
+        index.truncate(0);
+        writeFully(index, ByteBuffer.allocate((int) slotOffset(levels, 0)), 0);
+        writeInt(index, 0, levels);
+
+        // Re-insert every existing record in the level of its id
+        ByteBuffer record = ByteBuffer.allocate(1 + NAME_BYTES);
+        for (int id = 0; id < count; id++) {
+            record.clear();
+            readFully(records, record, (long) id * RECORD_BYTES);
+            byte[] name = Arrays.copyOfRange(record.array(), 1, 1 + record.get(0));
+            int level = levelOf(id);
+            writeInt(index, slotOffset(level, probe(index, records, level, name)), id + 1);
+        }
+        writeInt(index, 4, count);
+    }
+
+    /** isIndexValid: check that the index header and levels are complete and cover every record
+     * * @param index the index channel
+     * * @param records the records channel
+     * * @return false if the index must be rebuilt
+     */
+    private static boolean isIndexValid(FileChannel index, FileChannel records) throws IOException {
+        if (index.size() < HEADER_BYTES) return false;
+        int levels = readInt(index, 0);
+        int count = readInt(index, 4);
+        if (levels < 1 || levels > MAX_LEVELS || index.size() < slotOffset(levels, 0)) return false;
+        return count == records.size() / RECORD_BYTES && levels == levelsFor(count);
+    }
+
+    /** levelOf: get the index level of an account id
+     * Level i has INITIAL_CAPACITY * 2^i slots and holds the next half of that many ids, so every level stays at most half full.
+     * * @param id the account id
+     * * @return the level
+     */
+    private static int levelOf(int id) {
+        int level = 0;
+        while (level < MAX_LEVELS && id >= firstId(level + 1)) level++;
+        return level;
+    }
+
+    /** levelsFor: get the number of index levels needed for a number of accounts
+     * * @param count the number of accounts
+     * * @return at least one level
+     */
+    private static int levelsFor(int count) {
+        return count == 0 ? 1 : levelOf(count - 1) + 1;
+    }
+
+    private static long firstId(int level) { return (INITIAL_CAPACITY / 2) * ((1L << level) - 1); }
+
+    private static int levelCapacity(int level) { return INITIAL_CAPACITY << level; }
+
+    /** encodeName: validate and encode a username
+     * * @param username the username
+     * * @return the UTF-8 bytes of the username
+     */
+    private static byte[] encodeName(String username) {
+        if (username == null || username.isEmpty()) throw new IllegalArgumentException("Username cannot be null or empty.");
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        if (name.length > NAME_BYTES) throw new IllegalArgumentException("Username is too long (max " + NAME_BYTES + " bytes): " + username);
+        return name;
+    }
+
+    private static long slotOffset(int level, int slot) { return HEADER_BYTES + (INITIAL_CAPACITY * ((1L << level) - 1) + slot) * 4; }
+
+    private static int readInt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        readFully(channel, buffer, position);
+        return buffer.getInt(0);
+    }
+
+    private static void writeInt(FileChannel channel, long position, int value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        buffer.putInt(0, value);
+        writeFully(channel, buffer, position);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new EOFException("Unexpected end of account file at " + position);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer, position + buffer.position());
+    }
+}
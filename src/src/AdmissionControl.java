@@ -0,0 +1,101 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class AdmissionControl {
+    private static final long MIN_RETRY_MILLIS = 10;
+
+    private final int globalLimit; // Max requests queued or running over all games
+    private final int gameLimit;   // Max requests queued or running for a single game
+    private final int workers;     // Threads draining the queue, used to estimate the retry delay
+
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final ConcurrentHashMap<String, Integer> gameDepths = new ConcurrentHashMap<>(); // Only games with requests in flight
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedGlobal = new LongAdder();
+    private final LongAdder rejectedGame = new LongAdder();
+    private volatile long averageServiceNanos = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Constructor: create the admission control with its queue limits
+     * * @param globalLimit the max requests queued or running over all games
+     * * @param gameLimit the max requests queued or running for a single game
+     * * @param workers the number of threads serving requests
+     */
+    public AdmissionControl(int globalLimit, int gameLimit, int workers) {
+        if (globalLimit < 1 || gameLimit < 1 || workers < 1) throw new IllegalArgumentException("Queue limits and workers must be positive.");
+        this.globalLimit = globalLimit;
+        this.gameLimit = gameLimit;
+        this.workers = workers;
+    }
+
+    /** tryAcquire: admit a request if both the global and the game queue have room
+     * * @param game the game the request targets
+     * * @return true if the request was admitted and must be released later
+     */
+    public boolean tryAcquire(String game) {
+        // Take a global slot first, it is the cheaper check
+        int current;
+        do {
+            current = depth.get();
+            if (current >= globalLimit) {
+                rejectedGlobal.increment();
+                return false;
+            }
+        } while (!depth.compareAndSet(current, current + 1));
+
+        // Then a slot in the game's queue
+        boolean[] admittedToGame = { false };
+        gameDepths.compute(game, (k, v) -> {
+            int n = v == null ? 0 : v;
+            if (n >= gameLimit) return v;
+            admittedToGame[0] = true;
+            return n + 1;
+        });
+        if (!admittedToGame[0]) {
+            depth.decrementAndGet();
+            rejectedGame.increment();
+            return false;
+        }
+
+        admitted.increment();
+        maxDepth.accumulateAndGet(current + 1, Math::max);
+        return true;
+    }
+
+    /** release: free the slots of a finished request
+     * * @param game the game the request targeted
+     * * @param serviceNanos the time spent serving the request
+     */
+    public void release(String game, long serviceNanos) {
+        gameDepths.compute(game, (k, v) -> v == null || v <= 1 ? null : v - 1);
+        depth.decrementAndGet();
+        averageServiceNanos += (serviceNanos - averageServiceNanos) / 8; // Moving average, races only blur it
+    }
+
+    /** retryAfterMillis: estimate when a rejected client should retry
+     * * @return the time to drain the current queue, in milliseconds
+     */
+    public long retryAfterMillis() {
+        return Math.max(MIN_RETRY_MILLIS, TimeUnit.NANOSECONDS.toMillis(averageServiceNanos * depth.get() / workers));
+    }
+
+    /** metrics: get the queue depth, admission and rejection counters
+     * * @return the metrics by name
+     */
+    public Map<String, Long> metrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("queue.depth", (long) depth.get());
+        metrics.put("queue.depth.max", (long) maxDepth.get());
+        metrics.put("queue.limit", (long) globalLimit);
+        metrics.put("queue.game.limit", (long) gameLimit);
+        metrics.put("requests.admitted", admitted.sum());
+        metrics.put("requests.rejected.global", rejectedGlobal.sum());
+        metrics.put("requests.rejected.game", rejectedGame.sum());
+        metrics.put("service.avg.micros", TimeUnit.NANOSECONDS.toMicros(averageServiceNanos));
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(gameDepths).entrySet()) {
+            metrics.put("queue.game." + entry.getKey() + ".depth", (long) entry.getValue());
+        }
+        return metrics;
+    }
+}
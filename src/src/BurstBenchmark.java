@@ -0,0 +1,145 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class BurstBenchmark {
+    private static final String[] PLAYERS = { "alice", "bob" };
+    private static final int SERVED = 0, BUSY = 1, REFUSED = 2; // Outcomes, a refused move is still served
+
+    /** Phase: the samples of one burst, split by outcome */
+    private static class Phase {
+        final List<Long> served = new ArrayList<>();
+        final List<Long> busy = new ArrayList<>();
+        int writes;
+        int appliedWrites;
+    }
+
+    /** main: measure request latency of the network front end at steady load and under a 100x spike
+     * The spike runs against limits it exceeds, so some requests must be rejected as busy. One in four
+     * clients moves (--draw, then --pass, for each player) while the others read. Exits with status 1 if the
+     * spike was never rejected, no move was applied, or the p99 of served requests is above the bound in any phase.
+     * Usage: java -cp bin BurstBenchmark [clients] [queue] [game-queue] [p99 bound ms]
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int queue = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int gameQueue = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        long boundMillis = args.length > 3 ? Long.parseLong(args[3]) : 250;
+        if (clients * 100 <= Math.min(queue, gameQueue)) throw new IllegalArgumentException("A spike of " + clients * 100 + " clients never exceeds the queue limits.");
+
+        // One scratch game per phase with two players, created through the CLI
+        List<String> failures = new ArrayList<>();
+        try (ScratchGames scratch = new ScratchGames("crazy-eights-burst");
+             CommandServer server = new CommandServer(0, queue, gameQueue)) {
+            scratch.createGame("steady", true, PLAYERS);
+            scratch.createGame("spike", true, PLAYERS);
+            int port = server.start();
+            Phase steady = burst(port, "steady", clients, 50, "steady");
+            Phase spike = burst(port, "spike", clients * 100, 1, "spike x100");
+            System.out.println();
+            for (Map.Entry<String, Long> entry : server.metrics().entrySet()) System.out.println(entry.getKey() + " " + entry.getValue());
+
+            if (spike.busy.isEmpty()) failures.add("the spike never hit the queue limits");
+            if (steady.appliedWrites + spike.appliedWrites == 0) failures.add("no move was applied");
+            for (Phase phase : List.of(steady, spike)) {
+                double p99 = percentile(phase.served, 99);
+                if (p99 > boundMillis) failures.add(String.format("served p99 %.2f ms is above %d ms", p99, boundMillis));
+            }
+        }
+
+        System.out.println();
+        for (String failure : failures) System.out.println("FAILED: " + failure);
+        if (!failures.isEmpty()) System.exit(1);
+        System.out.println("Passed: spike rejected, served p99 within " + boundMillis + " ms");
+    }
+
+    /** burst: release all clients at once, each sending its requests back to back
+     * * @param port the server port
+     * * @param game the game the clients play
+     * * @param clients the number of concurrent clients
+     * * @param requests the requests per client
+     * * @param label the phase name
+     * * @return the samples of the phase
+     */
+    private static Phase burst(int port, String game, int clients, int requests, String label) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<List<long[]>>> results = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            String player = PLAYERS[c % PLAYERS.length];
+            boolean writer = c % 4 == 3;
+            List<String> lines = new ArrayList<>();
+            if (writer) {
+                // Draw and pass for each player in turn, so that one writer alone moves the game on
+                for (String p : PLAYERS) {
+                    lines.add(p + "\t--draw\t--user\t" + p + "\t--game\t" + game);
+                    lines.add(p + "\t--pass\t--user\t" + p + "\t--game\t" + game);
+                }
+            } else {
+                lines.add(player + (c % 4 == 1 ? "\t--order" : "\t--cards\t" + player) + "\t--user\t" + player + "\t--game\t" + game);
+            }
+            String[] requestLines = lines.toArray(new String[0]);
+            results.add(pool.submit(() -> {
+                go.await();
+                List<long[]> samples = new ArrayList<>();
+                for (int r = 0; r < requests; r++) {
+                    long[] sample = send(port, requestLines[r % requestLines.length]);
+                    samples.add(new long[] { sample[0], sample[1], writer ? 1 : 0 });
+                }
+                return samples;
+            }));
+        }
+        go.countDown();
+
+        Phase phase = new Phase();
+        for (Future<List<long[]>> result : results) {
+            for (long[] sample : result.get()) {
+                (sample[1] == BUSY ? phase.busy : phase.served).add(sample[0]);
+                if (sample[2] == 1 && sample[1] != BUSY) phase.writes++;
+                if (sample[2] == 1 && sample[1] == SERVED) phase.appliedWrites++;
+            }
+        }
+        pool.shutdown();
+
+        System.out.printf("%-11s clients %4d  served %5d  p50 %7.2f ms  p99 %7.2f ms  max %7.2f ms  |  busy %5d  p99 %6.2f ms  |  moves %d/%d applied%n",
+            label, clients, phase.served.size(), percentile(phase.served, 50), percentile(phase.served, 99), percentile(phase.served, 100),
+            phase.busy.size(), percentile(phase.busy, 99), phase.appliedWrites, phase.writes);
+        return phase;
+    }
+
+    /** send: send one request and wait for the full response
+     * * @param port the server port
+     * * @param request the request line
+     * * @return the latency in nanoseconds and the outcome: SERVED, BUSY, or REFUSED for a move against the rules
+     */
+    private static long[] send(int port, String request) throws IOException {
+        long start = System.nanoTime();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.getOutputStream().write((request + "\n").getBytes(StandardCharsets.UTF_8));
+            socket.getOutputStream().flush();
+            String last = null;
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            for (String line = in.readLine(); line != null; line = in.readLine()) last = line;
+            if (last == null) throw new IllegalStateException("No response to: " + request);
+            long latency = System.nanoTime() - start;
+            if (last.equals("OK")) return new long[] { latency, SERVED };
+            if (last.startsWith("BUSY")) return new long[] { latency, BUSY };
+
+            // Moves race for the turn, so rule errors are expected, anything else is a server fault
+            boolean move = request.contains("\t--draw\t") || request.contains("\t--pass\t");
+            if (move && (last.contains("not your turn") || last.contains("already drawn") || last.contains("haven't drawn")
+                || last.contains("reshuffle"))) return new long[] { latency, REFUSED };
+            throw new IllegalStateException("Unexpected response to " + request + ": " + last);
+        }
+    }
+
+    private static double percentile(List<Long> samples, int p) {
+        if (samples.isEmpty()) return 0;
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        int index = Math.max(0, (int) Math.ceil(p / 100.0 * sorted.size()) - 1);
+        return sorted.get(index) / 1e6;
+    }
+}
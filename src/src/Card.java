@@ -28,6 +28,9 @@ public class Card {
         }
     }
 
+    private static final Suit[] SUITS = Suit.values(); // values() copies the array on every call
+    private static final Rank[] RANKS = Rank.values();
+
     private final Suit suit; // Card suit
     private final Rank rank; // Card rank
 
@@ -78,6 +81,19 @@ public class Card {
         return new Card(suit, rank);
     }
 
+    /** toCode: get the compact code of the card (suit * 13 + rank), from 0 to 51
+     * @return the card code
+     */
+    public int toCode() { return suit.ordinal() * RANKS.length + rank.ordinal(); }
+
+    /** fromCode: create a card from its compact code
+     * @param code the card code, from 0 to 51
+     */
+    public static Card fromCode(int code) {
+        if (code < 0 || code >= SUITS.length * RANKS.length) throw new IllegalArgumentException("Invalid card code: " + code);
+        return new Card(SUITS[code / RANKS.length], RANKS[code % RANKS.length]);
+    }
+
     /** equals: check if two cards are equal based on their suit and rank
      * @param obj object to compare with
      */
@@ -90,4 +106,6 @@ public class Card {
     }
 
     public Rank getRank() { return rank; }
+
+    public Suit getSuit() { return suit; }
 }
\ No newline at end of file
@@ -0,0 +1,452 @@
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class CommandServer implements Closeable {
+    private static final int WORKERS = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int BACKLOG = 1024;             // Accept bursts, admission control decides what to serve
+    private static final int READ_TIMEOUT_MILLIS = 200;  // Total time a client has to send its request line
+    private static final int MAX_PENDING = 256;          // Connections still sending their request line
+    private static final int MAX_REQUEST_BYTES = 4096;
+    private static final int BATCH = 32;                 // Requests a game serves before giving its worker back
+
+    private final InetAddress bindAddress;
+    private final int port;
+    private final AdmissionControl admission;
+    private final ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+    private final Map<String, GameQueue> gameQueues = new ConcurrentHashMap<>(); // Serializes each game in this JVM
+    private final LongAdder sharedReads = new LongAdder();
+    private final LongAdder coalescedReads = new LongAdder();
+    private final LongAdder rejectedConnections = new LongAdder();
+    private final LongAdder expiredConnections = new LongAdder();
+    private ServerSocketChannel socket;
+    private Selector selector;
+    private Thread acceptor;
+
+    /** PendingRequest: a connection still sending its request line */
+    private static class PendingRequest {
+        final long deadline; // System.nanoTime by which the whole line must have arrived
+        final ByteBuffer line = ByteBuffer.allocate(MAX_REQUEST_BYTES);
+        boolean tooLong;
+
+        PendingRequest(long deadline) { this.deadline = deadline; }
+    }
+
+    /** Request: an admitted request waiting in its game's queue */
+    private static class Request {
+        final Socket client;
+        final String password;
+        final Map<String, String> flags;
+        final long admittedAt; // System.nanoTime when the request was admitted
+
+        Request(Socket client, String password, Map<String, String> flags, long admittedAt) {
+            this.client = client;
+            this.password = password;
+            this.flags = flags;
+            this.admittedAt = admittedAt;
+        }
+
+        boolean isRead() { return flags.containsKey("cards") || flags.containsKey("order"); }
+    }
+
+    /** Action: the part of a request that runs with System.out sent to the client */
+    private interface Action {
+        void run() throws Exception;
+    }
+
+    /** GameQueue: the admitted requests of one game, run in order by at most one worker at a time
+     * A game never has a worker waiting on it, so a busy game can't hold the workers other games need.
+     */
+    private final class GameQueue implements Runnable {
+        private final String game;
+        private final Queue<Request> requests = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        GameQueue(String game) { this.game = game; }
+
+        /** submit: queue a request and make sure a worker will run the queue
+         * * @param request the admitted request
+         */
+        void submit(Request request) {
+            requests.add(request);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) workers.execute(this);
+        }
+
+        /** run: serve up to BATCH requests, then give the worker back so that other games get their turn */
+        @Override
+        public void run() {
+            try {
+                int served = 0;
+                while (served < BATCH) {
+                    Request request = requests.poll();
+                    if (request == null) break;
+                    if (!request.isRead()) {
+                        handle(game, request, () -> serveWrite(game, request));
+                        served++;
+                        continue;
+                    }
+
+                    // Reads queued back to back share one state read, this runner is the only consumer
+                    List<Request> reads = new ArrayList<>();
+                    reads.add(request);
+                    while (served + reads.size() < BATCH && requests.peek() != null && requests.peek().isRead()) reads.add(requests.poll());
+                    serveReads(game, reads);
+                    served += reads.size();
+                }
+            } finally {
+                scheduled.set(false);
+                if (!requests.isEmpty()) schedule(); // Requests that arrived after the last poll
+            }
+        }
+    }
+
+    /** ThreadOutput: System.out replacement that sends each worker's output to its own client */
+    private static class ThreadOutput extends OutputStream {
+        private static final ThreadLocal<OutputStream> target = new ThreadLocal<>();
+        private final OutputStream fallback;
+
+        ThreadOutput(OutputStream fallback) { this.fallback = fallback; }
+
+        private OutputStream current() {
+            OutputStream out = target.get();
+            return out != null ? out : fallback;
+        }
+
+        @Override public void write(int b) throws IOException { current().write(b); }
+        @Override public void write(byte[] b, int off, int len) throws IOException { current().write(b, off, len); }
+        @Override public void flush() throws IOException { current().flush(); }
+    }
+
+    /** Constructor: create a server with bounded queues, listening on the loopback interface only
+     * * @param port the TCP port to listen on, 0 for any free port
+     * * @param globalLimit the max requests queued or running over all games
+     * * @param gameLimit the max requests queued or running for a single game
+     */
+    public CommandServer(int port, int globalLimit, int gameLimit) {
+        this(InetAddress.getLoopbackAddress(), port, globalLimit, gameLimit);
+    }
+
+    /** Constructor: create a server with bounded queues
+     * Passwords travel in plain text, only bind to other interfaces on a trusted network.
+     * * @param bindAddress the address to listen on
+     * * @param port the TCP port to listen on, 0 for any free port
+     * * @param globalLimit the max requests queued or running over all games
+     * * @param gameLimit the max requests queued or running for a single game
+     */
+    public CommandServer(InetAddress bindAddress, int port, int globalLimit, int gameLimit) {
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.admission = new AdmissionControl(globalLimit, gameLimit, WORKERS);
+    }
+
+    /** start: bind the socket and start accepting requests
+     * * @return the port the server listens on
+     */
+    public synchronized int start() throws IOException {
+        if (socket != null) throw new IllegalStateException("Server already started.");
+        if (!(System.out instanceof CapturingPrintStream)) System.setOut(new CapturingPrintStream(System.out));
+        selector = Selector.open();
+        socket = ServerSocketChannel.open();
+        socket.bind(new InetSocketAddress(bindAddress, port), BACKLOG);
+        socket.configureBlocking(false);
+        socket.register(selector, SelectionKey.OP_ACCEPT);
+        acceptor = new Thread(this::acceptLoop, "crazy-eights-acceptor");
+        acceptor.start();
+        return ((InetSocketAddress) socket.getLocalAddress()).getPort();
+    }
+
+    /** serve: start the server and block until it is closed */
+    public void serve() throws IOException, InterruptedException {
+        int boundPort = start();
+        System.out.println("Serving on " + bindAddress.getHostAddress() + " port " + boundPort);
+        acceptor.join();
+    }
+
+    /** close: stop accepting requests and let the admitted ones finish */
+    @Override
+    public synchronized void close() throws IOException {
+        if (socket != null) socket.close();
+        if (selector != null) selector.wakeup();
+        workers.shutdown();
+    }
+
+    /** metrics: get the admission control and read coalescing metrics
+     * * @return the metrics by name
+     */
+    public Map<String, Long> metrics() {
+        Map<String, Long> metrics = admission.metrics();
+        metrics.put("reads.shared", sharedReads.sum());
+        metrics.put("reads.coalesced", coalescedReads.sum());
+        metrics.put("connections.rejected", rejectedConnections.sum());
+        metrics.put("connections.expired", expiredConnections.sum());
+        return metrics;
+    }
+
+    /** acceptLoop: accept connections and collect request lines without blocking on any client
+     * Idle or slow clients only hold a selector key until their deadline, they never delay other clients.
+     */
+    private void acceptLoop() {
+        try {
+            while (socket.isOpen()) {
+                selector.select(READ_TIMEOUT_MILLIS / 4);
+                List<SelectionKey> complete = new ArrayList<>();
+                for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext(); ) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else if (key.isReadable() && readLine(key)) complete.add(key);
+                }
+                expirePending();
+
+                // Cancelled keys are only deregistered by the next select, then the channels can block again
+                if (complete.isEmpty()) continue;
+                selector.selectNow();
+                for (SelectionKey key : complete) {
+                    SocketChannel client = (SocketChannel) key.channel();
+                    client.configureBlocking(true);
+                    dispatch(client.socket(), (PendingRequest) key.attachment());
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // Server closed
+        } finally {
+            for (SelectionKey key : selector.keys()) closeQuietly(key.channel());
+            closeQuietly(selector);
+        }
+    }
+
+    /** accept: register new connections, or reject them right away when too many are still sending */
+    private void accept() throws IOException {
+        for (SocketChannel client = socket.accept(); client != null; client = socket.accept()) {
+            if (selector.keys().size() - 1 >= MAX_PENDING) {
+                rejectedConnections.increment();
+                client.configureBlocking(true);
+                respondQuietly(client.socket(), "BUSY retry-after=" + admission.retryAfterMillis());
+                continue;
+            }
+            client.configureBlocking(false);
+            client.register(selector, SelectionKey.OP_READ, new PendingRequest(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(READ_TIMEOUT_MILLIS)));
+        }
+    }
+
+    /** readLine: read what a client sent so far
+     * * @param key the client's selection key
+     * * @return true if the request line is complete, the key is then cancelled
+     */
+    private boolean readLine(SelectionKey key) {
+        SocketChannel client = (SocketChannel) key.channel();
+        PendingRequest pending = (PendingRequest) key.attachment();
+        try {
+            int from = pending.line.position();
+            if (client.read(pending.line) < 0) {
+                key.cancel();
+                closeQuietly(client);
+                return false;
+            }
+            for (int i = from; i < pending.line.position(); i++) {
+                if (pending.line.get(i) == '\n') {
+                    pending.line.limit(i).position(0);
+                    key.cancel();
+                    return true;
+                }
+            }
+            if (pending.line.hasRemaining()) return false;
+            pending.tooLong = true;
+            key.cancel();
+            return true; // Dispatch answers with an error
+        } catch (IOException e) {
+            key.cancel();
+            closeQuietly(client);
+            return false;
+        }
+    }
+
+    /** expirePending: drop connections that didn't send their request line in time */
+    private void expirePending() {
+        long now = System.nanoTime();
+        for (SelectionKey key : selector.keys()) {
+            if (!(key.attachment() instanceof PendingRequest) || now - ((PendingRequest) key.attachment()).deadline < 0) continue;
+            expiredConnections.increment();
+            key.cancel();
+            closeQuietly(key.channel());
+        }
+    }
+
+    /** dispatch: admit or reject a complete request line
+     * * @param client the client socket, in blocking mode
+     * * @param pending the request line read so far
+     */
+    private void dispatch(Socket client, PendingRequest pending) {
+        try {
+            if (pending.tooLong) {
+                respond(client, "ERROR Request too long.");
+                return;
+            }
+
+            // Request format: password, then the CLI arguments, separated by tabs
+            String line = StandardCharsets.UTF_8.decode(pending.line).toString();
+            if (line.endsWith("\r")) line = line.substring(0, line.length() - 1);
+            String[] fields = line.split("\t");
+            if (fields[0].equals("--metrics")) {
+                respond(client, metricsText() + "OK");
+                return;
+            }
+            String password = fields[0];
+            Map<String, String> flags = CrazyEights.parseArgs(Arrays.copyOfRange(fields, 1, fields.length));
+            String game = flags.get("game");
+            String refused = refusal(flags);
+            if (refused != null) {
+                respond(client, "ERROR " + refused);
+                return;
+            }
+
+            // Reject quickly instead of queuing without bound
+            if (!admission.tryAcquire(game)) {
+                respond(client, "BUSY retry-after=" + admission.retryAfterMillis());
+                return;
+            }
+            Request request = new Request(client, password, flags, System.nanoTime());
+            gameQueues.computeIfAbsent(game, GameQueue::new).submit(request);
+        } catch (Exception e) {
+            respondQuietly(client, "ERROR " + e.getMessage());
+        }
+    }
+
+    /** refusal: check if a command is served over the network
+     * * @param flags the parsed CLI arguments
+     * * @return why the command is refused, or null if it is served
+     */
+    private static String refusal(Map<String, String> flags) {
+        if (flags.containsKey("serve")) return "--serve is not a request.";
+        if (flags.containsKey("init")) return "--init is CLI only: anyone reaching the server could create games.";
+        if (flags.containsKey("add-user")) return "--add-user is CLI only: it needs the admin and the new player's passwords, a request carries one.";
+        if (flags.containsKey("hint")) return "--hint is CLI only: its search uses every core and would stall the other requests.";
+        return null;
+    }
+
+    /** handle: run an admitted request and send the output back to the client
+     * * @param game the game name
+     * * @param request the request
+     * * @param action the command, its output goes to the client
+     */
+    private void handle(String game, Request request, Action action) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        String status = "OK";
+        ThreadOutput.target.set(output);
+        try {
+            action.run();
+        } catch (Exception | LinkageError e) {
+            status = "ERROR " + e.getMessage();
+        } finally {
+            ThreadOutput.target.remove();
+            admission.release(game, System.nanoTime() - request.admittedAt);
+        }
+
+        try {
+            respond(request.client, output.toString(StandardCharsets.UTF_8) + status);
+        } catch (IOException ignored) {
+            // Client went away, nothing to report to
+        }
+    }
+
+    /** serveReads: answer --cards and --order requests from one shared state read
+     * * @param game the game name
+     * * @param reads the read-only requests
+     */
+    private void serveReads(String game, List<Request> reads) {
+        Game shared = null;
+        GameState.Snapshot snapshot = null;
+        Exception failure = null;
+        try {
+            shared = new Game(game);
+            snapshot = shared.readState();
+            sharedReads.increment();
+            coalescedReads.add(reads.size() - 1);
+        } catch (Exception e) {
+            failure = e;
+        }
+
+        try {
+            for (Request read : reads) {
+                Game g = shared;
+                GameState.Snapshot s = snapshot;
+                Exception f = failure;
+                handle(game, read, () -> {
+                    if (f != null) throw f;
+                    serveRead(g, s, read);
+                });
+            }
+        } finally {
+            if (shared != null) closeQuietly(shared);
+        }
+    }
+
+    /** serveRead: answer --cards or --order from a shared state read
+     * * @param game the game, loaded for the shared read
+     * * @param snapshot the shared state read
+     * * @param request the request
+     */
+    private static void serveRead(Game game, GameState.Snapshot snapshot, Request request) throws IOException {
+        String user = request.flags.get("user");
+        if (user == null) throw new IllegalArgumentException("Invalid command or missing arguments.");
+        game.authenticate(user, request.password);
+        if (request.flags.containsKey("order")) {
+            Game.printTurnOrder(game.turnOrder(snapshot));
+        } else {
+            String userToGet = request.flags.get("cards");
+            Game.printCards(userToGet, game.cardsOf(snapshot, userToGet, user), snapshot.getDiscardTop());
+        }
+    }
+
+    /** serveWrite: run a state changing command, its game's queue runs one request at a time
+     * * @param game the game name
+     * * @param request the request
+     */
+    private static void serveWrite(String game, Request request) throws Exception {
+        GameManager.supplyPassword(request.password);
+        try (Game g = new Game(game)) {
+            CrazyEights.execute(g, request.flags);
+        } finally {
+            GameManager.supplyPassword(null);
+        }
+    }
+
+    private String metricsText() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Long> entry : metrics().entrySet()) {
+            text.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void respondQuietly(Socket client, String text) {
+        try { respond(client, text); } catch (IOException ignored) { }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try { closeable.close(); } catch (IOException ignored) { }
+    }
+
+    private static void respond(Socket client, String text) throws IOException {
+        try (client) {
+            OutputStream out = client.getOutputStream();
+            out.write((text + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    /** CapturingPrintStream: marks System.out as already redirected through ThreadOutput */
+    private static class CapturingPrintStream extends PrintStream {
+        CapturingPrintStream(PrintStream original) { super(new ThreadOutput(original), true, StandardCharsets.UTF_8); }
+    }
+}
@@ -1,42 +1,69 @@
 import java.util.*;
+import java.net.InetAddress;
 
 public class CrazyEights {
     public static void main(String[] args) {
         try {
-            Map<String, String> flags = parseArgs(args);
-            // Initialize game
-            if (flags.containsKey("init") && flags.containsKey("game")) {
-                Game.init(flags.get("game"));
-            } else {
-                // Get game instance
-                Game game = new Game(flags.get("game"));
-                if (flags.containsKey("add-user")) { 
-                    game.addUser(flags.get("add-user"));
-                } else if (flags.containsKey("remove-user")) {
-                    game.removeUser(flags.get("remove-user"));
-                } else if (flags.containsKey("start")) {
-                    game.startGame();
-                } else if (flags.containsKey("order") && flags.containsKey("user")) {
-                    game.getTurnOrder(flags.get("user"));
-                } else if (flags.containsKey("play") && flags.containsKey("user")) {
-                    game.playCard(flags.get("user"), flags.get("play"));
-                } else if (flags.containsKey("cards") && flags.containsKey("user")) {
-                    game.getCards(flags.get("cards"), flags.get("user"));
-                } else if (flags.containsKey("draw") && flags.containsKey("user")) {
-                    game.drawCard(flags.get("user"));
-                } else if (flags.containsKey("pass") && flags.containsKey("user")) {
-                    game.passTurn(flags.get("user"));
-                } else {
-                    throw new IllegalArgumentException("Invalid command or missing arguments.");
-                }
-            }
+            run(args);
         } catch (Exception e) {
             System.err.println("Error: " + e.getMessage());
             System.exit(1);
         }
     }
 
-    private static Map<String, String> parseArgs(String[] args) {
+    /** run: parse the arguments and execute a single command
+     * * @param args the command line arguments
+     */
+    public static void run(String[] args) throws Exception {
+        Map<String, String> flags = parseArgs(args);
+        if (flags.containsKey("serve")) {
+            // Serve commands over the network, on loopback unless --bind says otherwise (passwords are sent in plain text)
+            InetAddress bind = flags.containsKey("bind") ? InetAddress.getByName(flags.get("bind")) : InetAddress.getLoopbackAddress();
+            new CommandServer(
+                bind,
+                Integer.parseInt(flags.get("serve")),
+                Integer.parseInt(flags.getOrDefault("queue", "256")),
+                Integer.parseInt(flags.getOrDefault("game-queue", "32"))).serve();
+        } else if (flags.containsKey("init") && flags.containsKey("game")) {
+            // Initialize game
+            Game.init(flags.get("game"));
+        } else {
+            // Get game instance
+            try (Game game = new Game(flags.get("game"))) {
+                execute(game, flags);
+            }
+        }
+    }
+
+    /** execute: run a command against an existing game
+     * * @param game the game
+     * * @param flags the parsed command line flags
+     */
+    public static void execute(Game game, Map<String, String> flags) throws Exception {
+        if (flags.containsKey("add-user")) { 
+            game.addUser(flags.get("add-user"));
+        } else if (flags.containsKey("remove-user")) {
+            game.removeUser(flags.get("remove-user"));
+        } else if (flags.containsKey("start")) {
+            game.startGame();
+        } else if (flags.containsKey("order") && flags.containsKey("user")) {
+            game.getTurnOrder(flags.get("user"));
+        } else if (flags.containsKey("play") && flags.containsKey("user")) {
+            game.playCard(flags.get("user"), flags.get("play"));
+        } else if (flags.containsKey("cards") && flags.containsKey("user")) {
+            game.getCards(flags.get("cards"), flags.get("user"));
+        } else if (flags.containsKey("draw") && flags.containsKey("user")) {
+            game.drawCard(flags.get("user"));
+        } else if (flags.containsKey("pass") && flags.containsKey("user")) {
+            game.passTurn(flags.get("user"));
+        } else if (flags.containsKey("hint") && flags.containsKey("user")) {
+            game.getHint(flags.get("user"), Long.parseLong(flags.getOrDefault("budget", "1000")));
+        } else {
+            throw new IllegalArgumentException("Invalid command or missing arguments.");
+        }
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
         Map<String, String> flags = new HashMap<>();
         for (int i = 0; i < args.length; i++) {
             switch (args[i]) {
@@ -70,6 +97,24 @@ public class CrazyEights {
                 case "--pass": 
                     flags.put("pass", ""); 
                     break;
+                case "--hint": 
+                    flags.put("hint", ""); 
+                    break;
+                case "--budget": 
+                    flags.put("budget", args[++i].trim()); 
+                    break;
+                case "--serve": 
+                    flags.put("serve", args[++i].trim()); 
+                    break;
+                case "--bind": 
+                    flags.put("bind", args[++i].trim()); 
+                    break;
+                case "--queue": 
+                    flags.put("queue", args[++i].trim()); 
+                    break;
+                case "--game-queue": 
+                    flags.put("game-queue", args[++i].trim()); 
+                    break;
                 case "--cards": 
                     flags.put("cards", args[++i].trim()); 
                     break;
@@ -77,7 +122,7 @@ public class CrazyEights {
                     throw new IllegalArgumentException("Unknown argument: " + args[i]);
             }
         }
-        if (!flags.containsKey("game")) {
+        if (!flags.containsKey("game") && !flags.containsKey("serve")) {
             throw new IllegalArgumentException("Game name is required. Use --game <game_name>");
         }
         return flags;
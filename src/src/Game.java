@@ -2,29 +2,45 @@ import java.util.*;
 import java.util.stream.*;
 import java.io.*;
 import java.nio.file.*;
+import java.nio.channels.FileLock;
 import java.nio.charset.StandardCharsets;
 
-public class Game {
-    private static final String GAMES_FOLDER = "games";
+public class Game implements Closeable {
+    private static final String GAMES_FOLDER = System.getProperty("crazyeights.games", "games");
     private final Path gameDir;
-    private final Path deckFile; // Deck file
-    private final Path discardFile; // Deck file
+    private final Path stateFile; // Turn, deck, discard pile and hands, shared by concurrent processes
+    private final Path deckFile; // Text files of games created before the state file, migrated by the first move
+    private final Path discardFile;
     private final Path turnFile;
     private final GameManager manager;
+    private GameState state; // Mapped on first use
 
     /** Constructor: initializes the game directory if exists
      * * @param name the name of the game
      */
     public Game(String name) throws IOException {
         this.gameDir = Paths.get(GAMES_FOLDER, name);
+        this.stateFile = gameDir.resolve("state.bin");
         this.turnFile = gameDir.resolve("turn.txt");
         this.discardFile = gameDir.resolve("discard.txt");
         this.deckFile = gameDir.resolve("deck.txt");
         if (!Files.exists(gameDir)) throw new IllegalArgumentException("Game directory does not exist: " + name);
-        if (!Files.exists(turnFile)) throw new IllegalArgumentException("Turn file does not exist: " + turnFile);
-        if (!Files.exists(deckFile)) throw new IllegalArgumentException("Deck file does not exist: " + deckFile);
-        if (!Files.exists(discardFile)) throw new IllegalArgumentException("Discard file does not exist: " + discardFile);
-        this.manager = new GameManager(gameDir);
+        if (!Files.exists(stateFile) && !Files.exists(turnFile)) throw new IllegalArgumentException("State file does not exist: " + stateFile);
+        this.manager = new GameManager(gameDir, AccountStore.open(Paths.get(GAMES_FOLDER)));
+    }
+
+    /** state: map the state file on first use, commands that don't need it skip the cost
+     * * @return the game state
+     */
+    private GameState state() throws IOException {
+        if (state == null) state = new GameState(stateFile);
+        return state;
+    }
+
+    /** close: release the state file if it was mapped */
+    @Override
+    public void close() throws IOException {
+        if (state != null) state.close();
     }
 
     /** init: actually create a new game
@@ -36,20 +52,14 @@ public class Game {
         Files.createDirectories(gameDir);
         Files.createFile(gameDir.resolve("users.txt"));
 
-        // Create the turn file with the initial turn
-        String turn = "admin"; 
-        Path turnFile = gameDir.resolve("turn.txt");
-        Files.createFile(turnFile);
-        Files.write(turnFile, turn.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-
-        // Create other files 
-        Path discFile =  gameDir.resolve("discard.txt");
-        Path deckFile =  gameDir.resolve("deck.txt");
-        Files.createFile(discFile);
-        Files.createFile(deckFile);
+        // Create the state file, the admin holds the turn until the start
+        try (GameState state = new GameState(gameDir.resolve("state.bin"));
+             FileLock lock = state.lock()) {
+            state.write(new GameEngine(new ArrayList<>()).snapshot());
+        }
         
         // Create the GameManager instance and initialize the game
-        GameManager manager = new GameManager(gameDir);
+        GameManager manager = new GameManager(gameDir, AccountStore.open(Paths.get(GAMES_FOLDER)));
         manager.initGame(System.console());
     }
 
@@ -58,7 +68,7 @@ public class Game {
      */
     public void addUser(String username) throws IOException {
         manager.requireUser("admin");
-        if (!readTurn().equals("admin")) throw new IllegalStateException("Game already started: " + turnFile);
+        if (readState().turn != GameState.NOT_STARTED) throw new IllegalStateException("Game already started: " + gameDir.getFileName());
         manager.addUser(username);
     
     }
@@ -68,28 +78,8 @@ public class Game {
      */
     public void removeUser(String username) throws IOException {
         manager.requireUser("admin");
-        if (!readTurn().equals("admin")) throw new IllegalStateException("Game already started: " + turnFile);
+        if (readState().turn != GameState.NOT_STARTED) throw new IllegalStateException("Game already started: " + gameDir.getFileName());
         manager.removeUser(username);
-        Files.deleteIfExists(gameDir.resolve(username + ".txt"));
-    }
-
-    /** readTurn: read the current turn from the turn file
-     * * @return the current turn as a string
-     */
-    private String readTurn() throws IOException {
-        if (!Files.exists(turnFile)) throw new IllegalAccessError("Turn file doesn't exist"); 
-        String turn = new String(Files.readAllBytes(turnFile), StandardCharsets.UTF_8);
-        turn = turn.trim();
-        turn = turn.split(",")[0];
-        return new String(turn);
-    }
-
-    /** writeTurn: write the current turn to the turn file
-     * * @param turn the current turn as a string
-     */
-    private void writeTurn(String turn) throws IOException {
-        if (!Files.exists(turnFile)) throw new IllegalAccessError("Turn file doesn't exist"); 
-        Files.write(turnFile, turn.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
     }
 
     /**
@@ -99,101 +89,12 @@ public class Game {
     public void startGame() throws IOException {
         // Check if the game is already started and validate that the user starting the game is an admin
         manager.requireUser("admin");
-        if (!readTurn().equals("admin")) throw new IllegalStateException("Game already started: " + turnFile);
-
-        // Get the list of users from the game manager excluding the admin
-        List<String> usernames = new ArrayList<>();
-        for (String username : manager.users.keySet()) {
-            if (username.equals("admin")) continue;
-            usernames.add(username);
-        }
-        
-        if (usernames.size() < 2) throw new IllegalStateException("Not enough players to start the game: " + usernames.size());
-        
-        // Create the game files for each user
-        List<User> users = new ArrayList<>();
-        for (String username : usernames) users.add(new User(username, gameDir));
-        
-        // Create the deck and shuffle it 
-        List<Card> deck = createShuffledDeck();
-        List<Card> discard = new ArrayList<>(); // Create the discard pile
-
-        // Deal 5 cards to each player
-        for (User user : users) {
-            user.drawCard(deck.remove(0)); // Draw a card from the deck
-            user.drawCard(deck.remove(0)); // Draw a card from the deck
-            user.drawCard(deck.remove(0)); // Draw a card from the deck
-            user.drawCard(deck.remove(0)); // Draw a card from the deck
-            user.drawCard(deck.remove(0)); // Draw a card from the deck
-        }
-
-        String firstPlayer = users.get(0).getUsername(); // Get the first player
-        discard.add(deck.remove(0));    // Draw a card from the deck and add it to the discard pile
-        writeDecks(deck, discard);
-        writeTurn(firstPlayer + ",0");        // Write the first player's turn to the turn file, hasn't drawn yet
-    }
-
-    /** createShuffledDeck: create a shuffled deck of cards
-     * * @return a shuffled deck of cards
-     */
-    private List<Card> createShuffledDeck() {
-        List<Card> deck = new ArrayList<>();
-        for (Card.Suit suit : Card.Suit.values()) {
-            for (Card.Rank rank : Card.Rank.values()) {
-                deck.add(new Card(suit, rank)); // Add each card to the deck
-            }
+        try (FileLock lock = state().lock()) {
+            // Shuffle and deal, the first player starts and hasn't drawn yet
+            GameEngine engine = loadEngine();
+            engine.start(new Random());
+            publishState(engine);
         }
-        Collections.shuffle(deck); // Shuffle the deck
-        return deck;
-    }
-
-    /** writeDecks: write the deck and discard pile to files
-     * * @param deck the deck of cards
-     * * @param discard the discard pile
-     */
-    private void writeDecks(List<Card> deck, List<Card> discard) throws IOException {
-        if (!Files.exists(deckFile)) throw new IllegalAccessError("Deck file doesn't exist"); 
-        if (!Files.exists(discardFile)) throw new IllegalAccessError("Discard file doesn't exist"); 
-
-        // Write the deck to the deck file
-        try (BufferedWriter writer = Files.newBufferedWriter(deckFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-            for (Card card : deck) {
-                writer.write(card.toString());
-                writer.newLine();
-            }
-        }
-
-        // Write the discard pile to the discard file
-        try (BufferedWriter writer = Files.newBufferedWriter(discardFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-            for (Card card : discard) {
-                writer.write(card.toString());
-                writer.newLine();
-            }
-        }
-    }
-
-    /** getDeck: get the deck of cards
-     * * @return the deck of cards
-     */
-    public List<Card> getDeck() throws IOException {
-        if (!Files.exists(deckFile)) throw new IllegalAccessError("Deck file doesn't exist"); 
-        List<Card> deck = new ArrayList<>();
-        for (String line : Files.readAllLines(deckFile)) {
-            deck.add(Card.fromString(line.trim())); // Add each card to the deck
-        }
-        return deck;
-    }
-
-    /** getDiscard: get the discard pile
-     * * @return the discard pile
-     */
-    public List<Card> getDiscard() throws IOException {
-        if (!Files.exists(discardFile)) throw new IllegalAccessError("Discard file doesn't exist"); 
-        List<Card> discard = new ArrayList<>();
-        for (String line : Files.readAllLines(discardFile)) {
-            discard.add(Card.fromString(line.trim())); // Add each card to the discard pile
-        }
-        return discard;
     }
 
     /** getTurnOrder: get the list of players in turn order, starting who's turn it is 
@@ -202,29 +103,33 @@ public class Game {
     public void getTurnOrder(String requesterUsername) throws IOException {
         // Verify that the requester user exists 
         manager.requireUser(requesterUsername);
+        printTurnOrder(turnOrder(readState()));
+    }
 
-        // Read the current turn from the turn file
-        String currentPlayer = readTurn();
-        if (currentPlayer.equals("admin")) throw new IllegalStateException("Game not started yet!");
-
-        // Get all players except the admin 
-        List<String> players = new ArrayList<>();
-        for (String username : manager.users.keySet()) {
-            if (username.equals("admin")) continue;
-            players.add(username);
-        }
+    /** turnOrder: get the players in turn order from a state snapshot
+     * * @param snapshot the game state
+     * * @return the players, starting with the one who holds the turn
+     */
+    public List<String> turnOrder(GameState.Snapshot snapshot) {
+        if (snapshot.turn == GameState.NOT_STARTED) throw new IllegalStateException("Game not started yet!");
+        List<String> players = getPlayers();
 
         // Reorder the list of players based on the current turn
         List<String> turnOrder = new ArrayList<>();
-        int currentTurn = players.indexOf(currentPlayer);
+        int currentTurn = snapshot.turn;
 
         // First add the current player and players after 
         for (int i = currentTurn; i < players.size(); i++) turnOrder.add(players.get(i));
 
         // Then add the players before the current player 
         for (int i = 0; i < currentTurn; i++) turnOrder.add(players.get(i));
+        return turnOrder;
+    }
 
-        // Print the turn order
+    /** printTurnOrder: print the players in turn order
+     * * @param turnOrder the players in turn order
+     */
+    public static void printTurnOrder(List<String> turnOrder) {
         System.out.println("Turn order: ");
         for (int i = 0; i < turnOrder.size(); i++) {
             System.out.println((i + 1) + ". " + turnOrder.get(i));
@@ -238,21 +143,35 @@ public class Game {
     public void getCards(String userToGet, String requesterUsername) throws IOException {
         // Verify that the requester user exists 
         manager.requireUser(requesterUsername);
+        GameState.Snapshot snapshot = readState();
+        printCards(userToGet, cardsOf(snapshot, userToGet, requesterUsername), snapshot.getDiscardTop());
+    }
 
+    /** cardsOf: get the cards of a player from a state snapshot
+     * * @param snapshot the game state
+     * * @param userToGet the username of the user to get cards from
+     * * @param requesterUsername the username of the player requesting the cards
+     * * @return the cards of the player
+     */
+    public List<Card> cardsOf(GameState.Snapshot snapshot, String userToGet, String requesterUsername) {
         // Verify that the user has access to the cards
         if (!(requesterUsername.equals(userToGet) || requesterUsername.equals("admin"))) {
             throw new SecurityException("You don't have access to this user's cards: " + userToGet);
         }
 
         // Verify that the game has started 
-        String currentPlayer = readTurn();
-        if (currentPlayer.equals("admin")) throw new IllegalStateException("Game not started yet!");
-    
-        // Get the user's cards
-        User user = new User(userToGet, gameDir);
-        List<Card> userCards = user.getHand();
-        Card topCard = getTopCardFromDiscard();
+        if (snapshot.turn == GameState.NOT_STARTED) throw new IllegalStateException("Game not started yet!");
+        int slot = getPlayers().indexOf(userToGet);
+        if (slot < 0) throw new IllegalArgumentException("User doesn't exist: " + userToGet);
+        return snapshot.getHand(slot);
+    }
 
+    /** printCards: print the cards of a player and the discard pile top card
+     * * @param userToGet the username of the user whose cards are printed
+     * * @param userCards the cards of the user
+     * * @param topCard the top card of the discard pile
+     */
+    public static void printCards(String userToGet, List<Card> userCards, Card topCard) {
         // Print the user's cards
         System.out.println("Cards of " + userToGet + ": ");
         for (int i = 0; i < userCards.size(); i++) {
@@ -263,13 +182,32 @@ public class Game {
         System.out.println("\nTop card of the discard pile: " + topCard);
     }
 
-    /** getTopCardFromDiscard: get the top card of the discard pile
-     * * @return the top card of the discard pile 
+    /** authenticate: verify a password without prompting, for front ends that collect it themselves
+     * * @param username the username to check
+     * * @param password the password to verify
+     */
+    public void authenticate(String username, String password) throws IOException {
+        manager.verifyUser(username, password);
+    }
+
+    /** getPlayers: get the list of players from the game manager excluding the admin
+     * * @return the players in join order
      */
-    private Card getTopCardFromDiscard() throws IOException {
-        List<Card> discard = getDiscard();
-        if (discard.isEmpty()) return null;
-        return discard.get(discard.size() - 1);
+    public List<String> getPlayers() {
+        List<String> players = new ArrayList<>();
+        for (String player : manager.users.keySet()) {
+            if (player.equals("admin")) continue;
+            players.add(player);
+        }
+        return players;
+    }
+
+    /** readState: read the state file, or the text files of an older game that no move has migrated yet
+     * * @return the game state
+     */
+    public GameState.Snapshot readState() throws IOException {
+        GameState.Snapshot snapshot = state().read();
+        return snapshot != null ? snapshot : loadLegacyEngine().snapshot();
     }
 
     /** drawCard: draw a card from the deck and add it to the user's hand
@@ -277,52 +215,67 @@ public class Game {
      */
     public void drawCard(String username) throws IOException {
         manager.requireUser(username);
-        String currentPlayer = readTurn();
-        
-        // Verify that the game has started, the user is the current player, and the user has not drawn a card yet
-        if (currentPlayer.equals("admin")) throw new IllegalStateException("Game not started yet!");
-        if (!currentPlayer.equals(username)) throw new IllegalStateException("It's not your turn: " + currentPlayer);
-        if (hasDrawn(username)) throw new IllegalStateException("You have already drawn a card: " + username);
-
-        // Get the user and the deck
-        User user = new User(username, gameDir);
-        List<Card> deck = getDeck();
-        List<Card> discard = getDiscard();
-
-        // Reshuffle the deck if it's empty
-        if (deck.isEmpty()) {
-            System.out.println("Deck is empty, reshuffling the discard pile into the deck...");
-
-            // Highly unlikely to happen: 2/10 players draw card from the get go
-            Card topCard = discard.remove(discard.size() - 1); 
-            if (discard.isEmpty()) throw new IllegalStateException("Discard pile is empty, cannot reshuffle.");
-
-            // Add the remaining cards from the discard pile to the deck
-            deck.addAll(discard);
-            discard.clear(); 
-            discard.add(topCard); 
-            Collections.shuffle(deck);
+        try (FileLock lock = state().lock()) {
+            // The engine verifies the turn, reshuffles the discard pile into the deck if it's empty and adds the card to the hand
+            GameEngine engine = loadEngine();
+            boolean reshuffle = engine.getDeck().isEmpty();
+            engine.draw(username, new Random());
+            if (reshuffle) System.out.println("Deck is empty, reshuffling the discard pile into the deck...");
+            publishState(engine);
         }
+    }
 
-        // Draw a card from the deck and add it to the user's hand
-        Card drawnCard = deck.remove(deck.size() - 1);
-        user.drawCard(drawnCard);
-        writeTurn(username + "," + 1);          
-        writeDecks(deck, discard);  
+    /** publishState: write the game after a move to the state file, in a single step
+     * The caller must hold the state lock.
+     * * @param engine the game after the move
+     */
+    private void publishState(GameEngine engine) throws IOException {
+        state().write(engine.snapshot());
+    }
+
+    /** loadEngine: load the game rules from the state file, migrating the text files of an older game first
+     * The caller must hold the state lock.
+     * * @return the game, with one hand per player in join order
+     */
+    private GameEngine loadEngine() throws IOException {
+        GameState.Snapshot snapshot = state().read();
+        if (snapshot != null) return new GameEngine(getPlayers(), snapshot);
+
+        GameEngine engine = loadLegacyEngine();
+        publishState(engine);
+        Files.deleteIfExists(turnFile);
+        Files.deleteIfExists(deckFile);
+        Files.deleteIfExists(discardFile);
+        for (String player : engine.getPlayers()) Files.deleteIfExists(gameDir.resolve(player + ".txt"));
+        return engine;
+    }
+
+    /** loadLegacyEngine: load the game rules from the turn, deck, discard and hand files of an older game
+     * * @return the game, with one hand per player in join order
+     */
+    private GameEngine loadLegacyEngine() throws IOException {
+        if (!Files.exists(turnFile)) throw new IllegalStateException("Game state file was never written: " + stateFile);
+        String[] turn = new String(Files.readAllBytes(turnFile), StandardCharsets.UTF_8).trim().split(",");
+        boolean started = !turn[0].equals("admin");
+        if (started && (turn.length < 2 || !(turn[1].equals("0") || turn[1].equals("1")))) throw new IllegalStateException("Invalid turn file format: " + turnFile);
+
+        List<String> players = getPlayers();
+        List<List<Card>> hands = new ArrayList<>();
+        for (String player : players) hands.add(new User(player, gameDir).getHand());
+        return new GameEngine(players, turn[0], started && turn[1].equals("1"), readCards(deckFile), readCards(discardFile), hands);
     }
 
-    /** cannotDrawCard: check if the user has already drawn a card
-     * * @param username the username of the user
-     * * @return true if the user has already drawn a card, false otherwise
+    /** readCards: read a pile of cards from a text file of an older game
+     * * @param file the deck or discard file
+     * * @return the cards, none if the file doesn't exist
      */
-    private boolean hasDrawn(String username) throws IOException {
-        if (!Files.exists(turnFile)) throw new IllegalAccessError("Turn file doesn't exist"); 
-        String line = new String(Files.readAllBytes(turnFile), StandardCharsets.UTF_8);
-        line = line.trim();
-        String[] parts = line.split(",");
-        if (parts[1].equals("0")) return false;
-        else if (parts[1].equals("1")) return true;
-        else throw new IllegalStateException("Invalid turn file format: " + turnFile);
+    private static List<Card> readCards(Path file) throws IOException {
+        List<Card> cards = new ArrayList<>();
+        if (!Files.exists(file)) return cards;
+        for (String line : Files.readAllLines(file)) {
+            if (!line.isBlank()) cards.add(Card.fromString(line.trim()));
+        }
+        return cards;
     }
 
     /** passTurn: pass the turn to the next player
@@ -330,91 +283,56 @@ public class Game {
      */
     public void passTurn(String username) throws IOException {
         manager.requireUser(username);
-        String currentPlayer = readTurn();
-        
-        // Verify that the game has started and the user is the current player
-        if (currentPlayer.equals("admin")) throw new IllegalStateException("Game not started yet!");
-        if (!currentPlayer.equals(username)) throw new IllegalStateException("It's not your turn: " + currentPlayer);
-        if (!hasDrawn(username)) throw new IllegalStateException("You haven't drawn a card: " + username + " cannot pass the turn.");
-
-        // Get the list of players from the game manager excluding the admin
-        List<String> players = new ArrayList<>();
-        for (String player : manager.users.keySet()) {
-            if (player.equals("admin")) continue;
-            players.add(player);
+        try (FileLock lock = state().lock()) {
+            // The engine verifies the turn and finds the next player
+            GameEngine engine = loadEngine();
+            engine.pass(username);
+            publishState(engine);
         }
-
-        // Find the index of the current player and pass the turn to the next player
-        int currentIndex = players.indexOf(currentPlayer);
-        int nextIndex = (currentIndex + 1) % players.size();
-        String nextPlayer = players.get(nextIndex);
-        writeTurn(nextPlayer + ",0"); 
     }
 
-    /** playCard: play card from deck 
-     * * @param username the username of the user playing a card
+    /** getHint: recommend a move for the current player with Monte Carlo playouts
+     * * @param username the username of the player asking for a hint
+     * * @param budgetMillis the time budget for the search in milliseconds
      */
-    public void playCard(String username, String cardString) throws IOException {
+    public void getHint(String username, long budgetMillis) throws IOException {
         manager.requireUser(username);
-        String currentPlayer = readTurn();
+        GameEngine engine = new GameEngine(getPlayers(), readState());
 
         // Verify that the game has started and the user is the current player
-        if (currentPlayer.equals("admin")) throw new IllegalStateException("Game not started yet!");
-        if (!currentPlayer.equals(username)) throw new IllegalStateException("It's not your turn: " + username);
-
-        // Get the user and the discard pile 
-        User user = new User(username, gameDir);
-        List<Card> discard = getDiscard();
-        List<Card> userCards = user.getHand();
-        Card topCard = getTopCardFromDiscard();
-
-        // Check if the card is in the user's hand
-        Card cardToPlay = null;
-        for (Card card : userCards) {
-            if (card.toString().equals(cardString)) {
-                cardToPlay = card;
-                break;
-            }
+        if (!engine.isStarted()) throw new IllegalStateException("Game not started yet!");
+        if (!engine.getCurrentPlayer().equals(username)) throw new IllegalStateException("It's not your turn: " + engine.getCurrentPlayer());
+
+        // Collect the opponents' hand sizes in turn order after the current player
+        List<String> players = engine.getPlayers();
+        int currentIndex = engine.getTurn();
+        int[] opponentHandSizes = new int[players.size() - 1];
+        for (int i = 1; i < players.size(); i++) {
+            opponentHandSizes[i - 1] = engine.getHand((currentIndex + i) % players.size()).size();
         }
-        
-        // Check if the card is playable and in the user's hand
-        if (cardToPlay == null) throw new IllegalArgumentException("Card not found in hand: " + cardString);
-        if (!cardToPlay.isPlayable(topCard)) throw new IllegalArgumentException("Card not playable: " + cardToPlay + " on top of " + topCard);
 
-        // Remove the card from the user's hand and add it to the discard pile
-        user.discardCard(cardToPlay);
-        discard.add(cardToPlay);
-        writeDecks(getDeck(), discard); // Write the updated deck and discard pile to files
+        // Run the search
+        HintEngine.Hint hint = new HintEngine().recommend(engine.getHand(currentIndex), engine.getDiscard(), opponentHandSizes, engine.hasDrawn(), budgetMillis, System.nanoTime());
 
-        // Get the list of players from the game manager excluding the admin
-        List<String> players = new ArrayList<>();
-        for (String player : manager.users.keySet()) {
-            if (player.equals("admin")) continue;
-            players.add(player);
+        // Print the recommendation and the statistics of every candidate move
+        System.out.println("Hint for " + username + ": " + hint.getBestMove());
+        for (int i = 0; i < hint.moves.size(); i++) {
+            System.out.printf(" %-5s win rate %5.1f%% (%d playouts)%n", hint.moves.get(i), hint.getWinRate(i) * 100, hint.playouts[i]);
         }
+        System.out.printf("%n%d playouts in %d ms (%.0f playouts/sec)%n", hint.getTotalPlayouts(), hint.elapsedNanos / 1_000_000, hint.getPlayoutsPerSecond());
+    }
 
-        // Find the index of the current player and pass the turn to the next player
-        int currentIndex = players.indexOf(currentPlayer);
-        int nextIndex = (currentIndex + 1) % players.size();
-        String nextPlayer = players.get(nextIndex);
-        writeTurn(nextPlayer + ",0"); 
-
-        // If the use has won the game reset the game, and delete or clear the game files depending on the functionality
-        if (user.hasWon()) {
-            System.out.println("User " + username + " has won the game!");
-
-            // Delete all player hand files
-            for (String player : players) {
-                if (player.equals("admin")) continue;
-                Files.deleteIfExists(gameDir.resolve(player + ".txt"));
-            }
-            
-            // Clear deck and discard files but keep them
-            Files.write(deckFile, new byte[0], StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            Files.write(discardFile, new byte[0], StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-
-            // Set turn to admin 
-            writeTurn("admin");
+    /** playCard: play card from deck 
+     * * @param username the username of the user playing a card
+     */
+    public void playCard(String username, String cardString) throws IOException {
+        manager.requireUser(username);
+        try (FileLock lock = state().lock()) {
+            // The engine verifies the turn and the card, then passes the turn or resets the game on a win
+            GameEngine engine = loadEngine();
+            boolean won = engine.play(username, cardString);
+            if (won) System.out.println("User " + username + " has won the game!"); // The engine handed the turn back to the admin
+            publishState(engine);
         }
     }
-}
\ No newline at end of file
+}
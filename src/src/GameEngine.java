@@ -0,0 +1,227 @@
+import java.util.*;
+
+public class GameEngine {
+    public static final int HAND_SIZE = 5; // Cards dealt to each player
+
+    private final List<String> players;
+    private final List<List<Card>> hands = new ArrayList<>(); // One hand per player, same order as players
+    private final List<Card> deck;                            // The last card is drawn next
+    private final List<Card> discard;                         // The last card is the top card
+    private int turn;                                         // Index of the player holding the turn, or GameState.NOT_STARTED
+    private boolean drawn;                                    // True once the current player has drawn this turn
+
+    /** Constructor: create a game that hasn't started yet
+     * * @param players the players in turn order
+     */
+    public GameEngine(List<String> players) {
+        this(players, "admin", false, new ArrayList<>(), new ArrayList<>(), null);
+    }
+
+    /** Constructor: restore a game from its saved state
+     * * @param players the players in turn order
+     * * @param currentPlayer the player holding the turn, or "admin" if the game hasn't started
+     * * @param drawn true if the current player has drawn this turn
+     * * @param deck the deck, the last card is drawn next
+     * * @param discard the discard pile, the last card is the top card
+     * * @param hands the hands of the players in turn order, or null for empty hands
+     */
+    public GameEngine(List<String> players, String currentPlayer, boolean drawn, List<Card> deck, List<Card> discard, List<List<Card>> hands) {
+        if (players.size() > GameState.MAX_PLAYERS) throw new IllegalArgumentException("Too many players: " + players.size());
+        if (hands != null && hands.size() != players.size()) throw new IllegalArgumentException("Expected one hand per player: " + hands.size());
+        this.players = new ArrayList<>(players);
+        for (int i = 0; i < players.size(); i++) this.hands.add(hands == null ? new ArrayList<>() : new ArrayList<>(hands.get(i)));
+        this.deck = new ArrayList<>(deck);
+        this.discard = new ArrayList<>(discard);
+        this.turn = currentPlayer.equals("admin") ? GameState.NOT_STARTED : players.indexOf(currentPlayer);
+        this.drawn = drawn;
+        if (this.turn == -1 && !currentPlayer.equals("admin")) throw new IllegalStateException("Turn held by an unknown player: " + currentPlayer);
+    }
+
+    /** Constructor: restore a game from the state file
+     * * @param players the players in turn order, one per hand slot of a started game
+     * * @param snapshot the game state
+     */
+    public GameEngine(List<String> players, GameState.Snapshot snapshot) {
+        this(players, snapshot.turn == GameState.NOT_STARTED ? "admin" : playerAt(players, snapshot.turn), snapshot.drawn,
+            snapshot.getDeck(), snapshot.getDiscard(), handsOf(players, snapshot));
+    }
+
+    private static String playerAt(List<String> players, int turn) {
+        if (turn < 0 || turn >= players.size()) throw new IllegalStateException("Turn held by an unknown player slot: " + turn);
+        return players.get(turn);
+    }
+
+    /** handsOf: get the hands of a snapshot, players only join or leave before the start so their hands are empty
+     * * @param players the players in turn order
+     * * @param snapshot the game state
+     * * @return one hand per player
+     */
+    private static List<List<Card>> handsOf(List<String> players, GameState.Snapshot snapshot) {
+        if (snapshot.turn != GameState.NOT_STARTED && snapshot.hands.length != players.size()) {
+            throw new IllegalStateException("Game state has " + snapshot.hands.length + " hands for " + players.size() + " players.");
+        }
+        List<List<Card>> hands = new ArrayList<>();
+        for (int i = 0; i < players.size(); i++) hands.add(i < snapshot.hands.length ? snapshot.getHand(i) : new ArrayList<>());
+        return hands;
+    }
+
+    /** start: shuffle the deck, deal the hands and turn up the first discard
+     * * @param random the random number generator used to shuffle
+     */
+    public void start(Random random) {
+        if (isStarted()) throw new IllegalStateException("Game already started.");
+        if (players.size() < 2) throw new IllegalStateException("Not enough players to start the game: " + players.size());
+
+        // Create the deck and shuffle it
+        deck.clear();
+        discard.clear();
+        for (Card.Suit suit : Card.Suit.values()) {
+            for (Card.Rank rank : Card.Rank.values()) {
+                deck.add(new Card(suit, rank)); // Add each card to the deck
+            }
+        }
+        Collections.shuffle(deck, random);
+
+        // Deal 5 cards to each player
+        for (List<Card> hand : hands) {
+            hand.clear();
+            for (int i = 0; i < HAND_SIZE; i++) hand.add(deck.remove(0));
+        }
+
+        discard.add(deck.remove(0)); // Draw a card from the deck and add it to the discard pile
+        turn = 0;                    // The first player starts, hasn't drawn yet
+        drawn = false;
+    }
+
+    /** draw: draw a card from the deck, reshuffling the discard pile into the deck if it's empty
+     * * @param username the player drawing
+     * * @param random the random number generator used to reshuffle
+     * * @return the card drawn
+     */
+    public Card draw(String username, Random random) {
+        // Verify that the game has started, the user is the current player, and the user has not drawn a card yet
+        if (!isStarted()) throw new IllegalStateException("Game not started yet!");
+        if (!getCurrentPlayer().equals(username)) throw new IllegalStateException("It's not your turn: " + getCurrentPlayer());
+        if (drawn) throw new IllegalStateException("You have already drawn a card: " + username);
+
+        // Reshuffle the deck if it's empty, checked first so that a failed draw changes nothing
+        if (deck.isEmpty()) {
+            if (discard.size() < 2) throw new IllegalStateException("Discard pile is empty, cannot reshuffle.");
+            Card topCard = discard.remove(discard.size() - 1);
+            deck.addAll(discard);
+            discard.clear();
+            discard.add(topCard);
+            Collections.shuffle(deck, random);
+        }
+
+        // Draw a card from the deck and add it to the user's hand
+        Card drawnCard = deck.remove(deck.size() - 1);
+        hands.get(turn).add(drawnCard);
+        drawn = true;
+        return drawnCard;
+    }
+
+    /** pass: pass the turn to the next player, only after drawing
+     * * @param username the player passing
+     */
+    public void pass(String username) {
+        // Verify that the game has started and the user is the current player
+        if (!isStarted()) throw new IllegalStateException("Game not started yet!");
+        if (!getCurrentPlayer().equals(username)) throw new IllegalStateException("It's not your turn: " + getCurrentPlayer());
+        if (!drawn) throw new IllegalStateException("You haven't drawn a card: " + username + " cannot pass the turn.");
+        nextTurn();
+    }
+
+    /** play: play a card on the discard pile and pass the turn, resetting the game if the player won
+     * * @param username the player playing
+     * * @param cardString the card to play, e.g. "H8"
+     * * @return true if the player emptied their hand and won
+     */
+    public boolean play(String username, String cardString) {
+        // Verify that the game has started and the user is the current player
+        if (!isStarted()) throw new IllegalStateException("Game not started yet!");
+        if (!getCurrentPlayer().equals(username)) throw new IllegalStateException("It's not your turn: " + username);
+
+        // Check if the card is in the user's hand
+        List<Card> hand = hands.get(turn);
+        Card cardToPlay = null;
+        for (Card card : hand) {
+            if (card.toString().equals(cardString)) {
+                cardToPlay = card;
+                break;
+            }
+        }
+
+        // Check if the card is playable and in the user's hand
+        Card topCard = getTopCard();
+        if (cardToPlay == null) throw new IllegalArgumentException("Card not found in hand: " + cardString);
+        if (!cardToPlay.isPlayable(topCard)) throw new IllegalArgumentException("Card not playable: " + cardToPlay + " on top of " + topCard);
+
+        // Remove the card from the user's hand, add it to the discard pile and pass the turn
+        hand.remove(cardToPlay);
+        discard.add(cardToPlay);
+        if (!hand.isEmpty()) {
+            nextTurn();
+            return false;
+        }
+
+        // The player has won: reset the game, the admin holds it again
+        for (List<Card> h : hands) h.clear();
+        deck.clear();
+        discard.clear();
+        turn = GameState.NOT_STARTED;
+        drawn = false;
+        return true;
+    }
+
+    /** nextTurn: pass the turn to the next player, who hasn't drawn yet */
+    private void nextTurn() {
+        turn = (turn + 1) % players.size();
+        drawn = false;
+    }
+
+    /** snapshot: get the state in the shared state file layout
+     * * @return the game state
+     */
+    public GameState.Snapshot snapshot() {
+        int[] deckCodes = new int[deck.size()];
+        for (int i = 0; i < deckCodes.length; i++) deckCodes[i] = deck.get(i).toCode();
+        long[] handMasks = new long[players.size()];
+        for (int i = 0; i < handMasks.length; i++) {
+            for (Card card : hands.get(i)) handMasks[i] |= 1L << card.toCode();
+        }
+        int[] discardCodes = new int[discard.size()];
+        for (int i = 0; i < discardCodes.length; i++) discardCodes[i] = discard.get(i).toCode();
+        return new GameState.Snapshot(turn, isStarted() && drawn, deckCodes, discardCodes, handMasks);
+    }
+
+    public boolean isStarted() { return turn != GameState.NOT_STARTED; }
+
+    public boolean hasDrawn() { return drawn; }
+
+    /** getCurrentPlayer: get the player holding the turn
+     * * @return the player, or "admin" if the game hasn't started
+     */
+    public String getCurrentPlayer() { return isStarted() ? players.get(turn) : "admin"; }
+
+    public int getTurn() { return turn; }
+
+    public List<String> getPlayers() { return Collections.unmodifiableList(players); }
+
+    public List<Card> getHand(String username) {
+        int slot = players.indexOf(username);
+        if (slot < 0) throw new IllegalArgumentException("User doesn't exist: " + username);
+        return getHand(slot);
+    }
+
+    public List<Card> getHand(int slot) { return Collections.unmodifiableList(hands.get(slot)); }
+
+    public List<Card> getDeck() { return Collections.unmodifiableList(deck); }
+
+    public List<Card> getDiscard() { return Collections.unmodifiableList(discard); }
+
+    /** getTopCard: get the top card of the discard pile
+     * * @return the top card, or null if the discard pile is empty
+     */
+    public Card getTopCard() { return discard.isEmpty() ? null : discard.get(discard.size() - 1); }
+}
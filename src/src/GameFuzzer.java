@@ -0,0 +1,321 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class GameFuzzer {
+    private static final int STEPS = 200;   // Commands per sequence
+    private static final String[] JUNK = { "", "H", "X8", "H14", "h8", "H8 ", "admin" }; // Card strings that aren't cards
+    private static final String[] CARDS = new String[52];
+    private static final long DUPLICATE = -1L; // Card mask marker, 52 bit masks are never all ones
+
+    static {
+        for (int code = 0; code < 52; code++) CARDS[code] = Card.fromCode(code).toString();
+    }
+
+    /** Op: one command, recorded by value so that a sequence replays the same with commands removed */
+    private static class Op {
+        static final int START = 0, DRAW = 1, PASS = 2, PLAY = 3;
+
+        final int kind;
+        final int player;  // Player slot, -1 for the admin
+        final String card; // Card to play, may be junk
+        final long seed;   // Shuffle seed for start and draw
+
+        Op(int kind, int player, String card, long seed) {
+            this.kind = kind;
+            this.player = player;
+            this.card = card;
+            this.seed = seed;
+        }
+
+        @Override
+        public String toString() {
+            String user = player < 0 ? "admin" : "p" + player;
+            switch (kind) {
+                case START: return "--start (seed " + seed + ")";
+                case DRAW: return "--draw --user " + user + " (seed " + seed + ")";
+                case PASS: return "--pass --user " + user;
+                default: return "--play \"" + card + "\" --user " + user;
+            }
+        }
+    }
+
+    /** Failure: a broken invariant and the commands that led to it */
+    private static class Failure {
+        final long caseSeed;
+        final int players;
+        final List<Op> ops;
+        final String kind;   // Short name of the invariant, shrinking keeps it
+        final String detail;
+
+        Failure(long caseSeed, int players, List<Op> ops, String kind, String detail) {
+            this.caseSeed = caseSeed;
+            this.players = players;
+            this.ops = ops;
+            this.kind = kind;
+            this.detail = detail;
+        }
+    }
+
+    /** main: run random legal and illegal command sequences against the game engine on all cores
+     * Exits with status 1 and a shrunk reproduction if an invariant breaks, so a build can run it.
+     * Usage: java -cp bin GameFuzzer [sequences] [seed] [threads]
+     *        java -cp bin GameFuzzer --case <case seed>
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("--case")) {
+            Failure failure = runCase(Long.parseLong(args[1]));
+            if (failure == null) System.out.println("Case " + args[1] + " passes.");
+            else report(shrink(failure));
+            System.exit(failure == null ? 0 : 1);
+        }
+
+        long sequences = args.length > 0 ? Long.parseLong(args[0]) : 10_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        // Threads claim case indexes from a shared counter, the case seed depends only on the index
+        AtomicLong next = new AtomicLong();
+        AtomicLong firstFailing = new AtomicLong(Long.MAX_VALUE);
+        ConcurrentHashMap<Long, Failure> failures = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (long index = next.getAndIncrement(); index < sequences && index < firstFailing.get(); index = next.getAndIncrement()) {
+                    Failure failure = runCase(caseSeed(seed, index));
+                    if (failure == null) continue;
+                    failures.put(index, failure);
+                    firstFailing.accumulateAndGet(index, Math::min);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        long elapsed = System.nanoTime() - start;
+
+        // Report the lowest failing index so that the same seed always reports the same case
+        if (!failures.isEmpty()) {
+            report(shrink(failures.get(firstFailing.get())));
+            System.out.println("Rerun with: java -cp bin GameFuzzer " + sequences + " " + seed + " " + threads);
+            System.exit(1);
+        }
+        System.out.printf("%d sequences (%d commands) passed in %d ms on %d threads (%.0f commands/sec), seed %d%n",
+            sequences, sequences * STEPS, elapsed / 1_000_000, threads, sequences * STEPS / (elapsed / 1e9), seed);
+    }
+
+    /** caseSeed: derive the seed of one case from the run seed, well mixed so neighbouring cases differ
+     * * @param seed the run seed
+     * * @param index the case index
+     * * @return the case seed
+     */
+    private static long caseSeed(long seed, long index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** runCase: generate and run one command sequence, steering towards legal moves so games get played out
+     * * @param caseSeed the case seed
+     * * @return the failure, or null if every invariant held
+     */
+    private static Failure runCase(long caseSeed) {
+        Random random = new Random(caseSeed);
+        int players = random.nextInt(8) == 0 ? random.nextInt(2) : 2 + random.nextInt(GameState.MAX_PLAYERS - 1);
+        GameEngine engine = new GameEngine(playerNames(players));
+        List<Op> ops = new ArrayList<>();
+        for (int step = 0; step < STEPS; step++) {
+            Op op = nextOp(engine, players, random);
+            ops.add(op);
+            String[] broken = apply(engine, op);
+            if (broken != null) return new Failure(caseSeed, players, ops, broken[0], broken[1]);
+        }
+        return null;
+    }
+
+    /** nextOp: pick the next command, mostly a legal one for the current player
+     * * @param engine the game
+     * * @param players the number of players
+     * * @param random the case random number generator
+     * * @return the command
+     */
+    private static Op nextOp(GameEngine engine, int players, Random random) {
+        long seed = random.nextLong();
+        int roll = random.nextInt(100);
+
+        // Any command from anyone, with any card string
+        if (roll < 15 || players == 0) {
+            int player = random.nextInt(players + 1) - 1;
+            String card = random.nextInt(4) == 0 ? JUNK[random.nextInt(JUNK.length)] : CARDS[random.nextInt(52)];
+            return new Op(random.nextInt(4), player, card, seed);
+        }
+        if (!engine.isStarted()) return new Op(Op.START, -1, null, seed);
+
+        // The current player plays a matching card, or draws, or passes
+        int current = engine.getTurn();
+        List<Card> hand = engine.getHand(current);
+        Card top = engine.getTopCard();
+        if (roll < 70) {
+            for (int i = 0, offset = random.nextInt(hand.size()); i < hand.size(); i++) {
+                Card card = hand.get((i + offset) % hand.size());
+                if (card.isPlayable(top)) return new Op(Op.PLAY, current, card.toString(), seed);
+            }
+        }
+        if (roll < 85) return new Op(engine.hasDrawn() ? Op.PASS : Op.DRAW, current, null, seed);
+        return new Op(Op.PLAY, current, hand.get(random.nextInt(hand.size())).toString(), seed); // Maybe not playable
+    }
+
+    /** apply: run one command and check the invariants
+     * * @param engine the game
+     * * @param op the command
+     * * @return the broken invariant as { kind, detail }, or null
+     */
+    private static String[] apply(GameEngine engine, Op op) {
+        String user = op.player < 0 ? "admin" : "p" + op.player;
+        long before = fingerprint(engine);
+        try {
+            switch (op.kind) {
+                case Op.START: engine.start(new Random(op.seed)); break;
+                case Op.DRAW: engine.draw(user, new Random(op.seed)); break;
+                case Op.PASS: engine.pass(user); break;
+                default: engine.play(user, op.card); break;
+            }
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // Illegal commands are expected, but must be rejected before changing anything
+            if (fingerprint(engine) != before) return new String[] { "atomicity", "rejected command changed the game: " + e.getMessage() };
+        } catch (RuntimeException e) {
+            return new String[] { "crash", e.toString() };
+        }
+        return checkInvariants(engine);
+    }
+
+    /** checkInvariants: verify card conservation and the turn holder
+     * * @param engine the game
+     * * @return the broken invariant as { kind, detail }, or null
+     */
+    private static String[] checkInvariants(GameEngine engine) {
+        int players = engine.getPlayers().size();
+
+        // After a win (or before the start) the admin holds the game and there are no cards in play
+        if (!engine.isStarted()) {
+            int cards = engine.getDeck().size() + engine.getDiscard().size();
+            for (int slot = 0; slot < players; slot++) cards += engine.getHand(slot).size();
+            if (cards != 0) return new String[] { "reset", cards + " cards left in play while not started" };
+            if (engine.hasDrawn()) return new String[] { "reset", "drawn flag set while not started" };
+            return null;
+        }
+
+        // The turn is held by a seated player
+        if (engine.getTurn() < 0 || engine.getTurn() >= players) return new String[] { "turn", "turn held by slot " + engine.getTurn() + " of " + players };
+        if (engine.getTopCard() == null) return new String[] { "discard", "discard pile empty while started" };
+
+        // Every card is in exactly one place: deck, discard pile or a hand
+        long seen = addPile(0, engine.getDeck());
+        seen = addPile(seen, engine.getDiscard());
+        for (int slot = 0; slot < players; slot++) seen = addPile(seen, engine.getHand(slot));
+        if (seen == DUPLICATE) return new String[] { "duplicate", "a card is in play twice" };
+        if (Long.bitCount(seen) != 52) return new String[] { "conservation", Long.bitCount(seen) + " cards in play instead of 52" };
+        return null;
+    }
+
+    /** addPile: add the cards of a pile to a card mask
+     * * @param seen the cards seen so far, or DUPLICATE
+     * * @param pile the pile
+     * * @return the cards seen including the pile, or DUPLICATE if a card was already seen
+     */
+    private static long addPile(long seen, List<Card> pile) {
+        for (int i = 0; i < pile.size() && seen != DUPLICATE; i++) {
+            long bit = 1L << pile.get(i).toCode();
+            seen = (seen & bit) != 0 ? DUPLICATE : seen | bit;
+        }
+        return seen;
+    }
+
+    /** fingerprint: hash the whole game state, to detect commands that fail half way
+     * * @param engine the game
+     * * @return the hash
+     */
+    private static long fingerprint(GameEngine engine) {
+        long hash = engine.getTurn() * 31L + (engine.hasDrawn() ? 1 : 0);
+        hash = hashPile(hash, engine.getDeck());
+        hash = hashPile(hash, engine.getDiscard());
+        for (int slot = 0, players = engine.getPlayers().size(); slot < players; slot++) hash = hashPile(hash, engine.getHand(slot));
+        return hash;
+    }
+
+    private static long hashPile(long hash, List<Card> pile) {
+        hash = hash * 1_000_003L + pile.size();
+        for (int i = 0; i < pile.size(); i++) hash = hash * 131L + pile.get(i).toCode();
+        return hash;
+    }
+
+    /** replay: run a fixed command sequence
+     * * @param players the number of players
+     * * @param ops the commands
+     * * @return the broken invariant as { kind, detail }, or null
+     */
+    private static String[] replay(int players, List<Op> ops) {
+        GameEngine engine = new GameEngine(playerNames(players));
+        for (Op op : ops) {
+            String[] broken = apply(engine, op);
+            if (broken != null) return broken;
+        }
+        return null;
+    }
+
+    /** shrink: remove players and commands while the same invariant still breaks
+     * * @param failure the failure found by the fuzzer
+     * * @return the smallest failure found
+     */
+    private static Failure shrink(Failure failure) {
+        Failure best = failure;
+
+        // Fewer players first, dropping the commands of the removed ones
+        for (int players = 0; players < best.players; players++) {
+            List<Op> ops = new ArrayList<>();
+            for (Op op : best.ops) if (op.player < players) ops.add(op);
+            Failure candidate = tryFailure(best, players, ops);
+            if (candidate != null) {
+                best = candidate;
+                break;
+            }
+        }
+
+        // Then remove chunks of commands, halving the chunk size down to single commands
+        for (int chunk = Math.max(1, best.ops.size() / 2); chunk >= 1; chunk /= 2) {
+            for (int from = 0; from < best.ops.size(); ) {
+                List<Op> ops = new ArrayList<>(best.ops.subList(0, from));
+                ops.addAll(best.ops.subList(Math.min(best.ops.size(), from + chunk), best.ops.size()));
+                Failure candidate = tryFailure(best, best.players, ops);
+                if (candidate != null) best = candidate;
+                else from += chunk;
+            }
+        }
+        return best;
+    }
+
+    /** tryFailure: replay a smaller sequence and keep it if it breaks the same invariant
+     * * @param failure the failure being shrunk
+     * * @param players the number of players
+     * * @param ops the commands
+     * * @return the smaller failure, or null
+     */
+    private static Failure tryFailure(Failure failure, int players, List<Op> ops) {
+        String[] broken = replay(players, ops);
+        if (broken == null || !broken[0].equals(failure.kind)) return null;
+        return new Failure(failure.caseSeed, players, ops, broken[0], broken[1]);
+    }
+
+    private static void report(Failure failure) {
+        System.out.println("Invariant broken (" + failure.kind + "): " + failure.detail);
+        System.out.println("Case seed " + failure.caseSeed + ", shrunk to " + failure.players + " players and " + failure.ops.size() + " commands:");
+        for (Op op : failure.ops) System.out.println("  " + op);
+    }
+
+    private static List<String> playerNames(int players) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < players; i++) names.add("p" + i);
+        return names;
+    }
+}
@@ -6,40 +6,103 @@ import java.nio.charset.StandardCharsets;
 
 public class GameManager {
     private final Path usersFilePath;
-    public final Map<String, String> users = new HashMap<>();
+    private final Path adminFilePath;
+    private final AccountStore accounts;
+    public final Map<String, Integer> users = new LinkedHashMap<>(); // Players in join order => account id
+    private static BufferedReader stdin; // Shared so that buffered passwords aren't lost between prompts
+    private static InputStream stdinSource; // The System.in stdin reads from, replaced when System.in is
+    private static final ThreadLocal<String> suppliedPassword = new ThreadLocal<>(); // Set by the network front end
 
     /** Constructor: retrieve contents based on directory
      * * @param gameDir
+     * * @param accounts the account store shared by all games
      */
-    public GameManager(Path gameDir) throws IOException {
+    public GameManager(Path gameDir, AccountStore accounts) throws IOException {
         this.usersFilePath = gameDir.resolve("users.txt");
+        this.adminFilePath = gameDir.resolve("admin.txt");
+        this.accounts = accounts;
         if (Files.exists(usersFilePath)) {
-            for (String line : Files.readAllLines(usersFilePath)) {
-                String[] parts = line.split(",",2);
-                if (parts.length == 2) { users.put(parts[0], parts[1]); }
+            List<String> lines = Files.readAllLines(usersFilePath);
+            for (String line : lines) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.contains(",")) { migrateUsers(lines); break; } // Old "username,hash" format
+                int id = Integer.parseInt(line);
+                users.put(accounts.getUsername(id), id);
             }
         }
     }
 
+    /** migrateUsers: move an old per-game "username,hash" users file into the account store
+     * * @param lines the lines of the old users file
+     */
+    private void migrateUsers(List<String> lines) throws IOException {
+        // Names are unique across games: an existing account is only reused if it has the same password,
+        // otherwise it belongs to someone else, so nothing is migrated
+        for (String line : lines) {
+            String[] parts = line.trim().split(",", 2);
+            if (parts.length != 2 || parts[0].equals("admin")) continue;
+            int id = accounts.find(parts[0]);
+            if (id >= 0 && !parts[1].equals(accounts.getPasswordHash(id))) {
+                throw new IllegalStateException("Cannot migrate " + usersFilePath + ": another player already has the account " + parts[0] + ", rename this player first.");
+            }
+        }
+
+        users.clear();
+        for (String line : lines) {
+            String[] parts = line.trim().split(",", 2);
+            if (parts.length != 2) continue;
+            if (parts[0].equals("admin")) {
+                Files.write(adminFilePath, parts[1].getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                continue;
+            }
+
+            // Reuse the matching account checked above, or create it
+            int id = accounts.find(parts[0]);
+            if (id < 0) id = accounts.create(parts[0], parts[1]);
+            users.put(parts[0], id);
+        }
+        saveUsers();
+    }
+
     /** initGame: create the admin user and save the current state
      * * @param console Console to read user input
      */
     public void initGame(Console console) throws IOException {
-        if (!users.isEmpty()) throw new IllegalStateException("Game already initialized: " + usersFilePath);
+        if (Files.exists(adminFilePath)) throw new IllegalStateException("Game already initialized: " + adminFilePath);
         String password = getPassword(console, "admin");
         String hashedPassword = hashPassword(password);
-        users.put("admin", hashedPassword);
-        saveUsers();
+        Files.write(adminFilePath, hashedPassword.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW);
     }
 
-    /** getPassword: read password from console
+    /** getPassword: read password from console, or from standard input when no console is attached
      * * @param console Console to read user input
      * * @return the password entered by the user
      */
-    private static String getPassword(Console console, String username) {
-        if (console == null) throw new IllegalAccessError("Console not available.");
-        char[] password = console.readPassword("Enter " + username + " password: ");
-        return new String(password);
+    private static String getPassword(Console console, String username) throws IOException {
+        String supplied = suppliedPassword.get();
+        if (supplied != null) return supplied;
+        if (console != null) {
+            char[] password = console.readPassword("Enter " + username + " password: ");
+            return new String(password);
+        }
+
+        // Non-interactive use (scripts, benchmarks): one password per line
+        if (stdin == null || stdinSource != System.in) {
+            stdinSource = System.in;
+            stdin = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        String password = stdin.readLine();
+        if (password == null) throw new IllegalStateException("Console not available and no password on standard input.");
+        return password;
+    }
+
+    /** supplyPassword: answer the password prompts of the current thread without a console
+     * * @param password the password, or null to prompt again
+     */
+    public static void supplyPassword(String password) {
+        if (password == null) suppliedPassword.remove();
+        else suppliedPassword.set(password);
     }
 
     /** hashPassword: hash a password using SHA3-256
@@ -56,13 +119,13 @@ public class GameManager {
         }
     }
 
-    /** saveUsers: save the users map to the users file 
+    /** saveUsers: save the account ids of the game's players to the users file 
      * * @throws IOException if an I/O error occurs
      */
     private void saveUsers() throws IOException {
         try (BufferedWriter writer = Files.newBufferedWriter(usersFilePath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-            for (Map.Entry<String, String> entry : users.entrySet()) {
-                writer.write(entry.getKey() + "," + entry.getValue());
+            for (int id : users.values()) {
+                writer.write(Integer.toString(id));
                 writer.newLine();
             }
         }
@@ -79,13 +142,18 @@ public class GameManager {
         if (username.equalsIgnoreCase("discard")) throw new IllegalArgumentException("Username cannot be 'discard'.");
         if (username.equalsIgnoreCase("turn")) throw new IllegalArgumentException("Username cannot be 'turn'.");
         if (users.containsKey(username)) throw new IllegalArgumentException("Username already exists: " + username);
-        if (users.size() > 10) throw new IllegalArgumentException("Maximum number of users reached (10).");
+        if (users.size() >= 10) throw new IllegalArgumentException("Maximum number of users reached (10).");
 
-        // Get password from console
+        // Get password from console, create the account or verify it if the user already has one
         String password = getPassword(System.console(), username);
         String hashedPassword = hashPassword(password);
-        users.put(username, hashedPassword);
-        saveUsers();
+        int id = accounts.find(username);
+        if (id < 0) id = accounts.create(username, hashedPassword);
+        else if (!hashedPassword.equals(accounts.getPasswordHash(id))) throw new IllegalArgumentException("Password is incorrect.");
+
+        // Append the account id, the users file only grows with the players of this game
+        users.put(username, id);
+        Files.write(usersFilePath, (id + System.lineSeparator()).getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
     }
 
     /** removeUser: remove a user from the game 
@@ -94,10 +162,10 @@ public class GameManager {
     public void removeUser(String username) throws IOException {
         // Check for edge cases (e.g. invalid usernames) => throw exception 
         if (username == null || username.isEmpty()) throw new IllegalArgumentException("Username cannot be null or empty.");
-        if (!users.containsKey(username)) throw new IllegalArgumentException("Username does not exist.");
         if (username.equalsIgnoreCase("admin")) throw new IllegalArgumentException("Cannot remove the 'admin' user.");
+        if (!users.containsKey(username)) throw new IllegalArgumentException("Username does not exist.");
 
-        // Remove user from the map and save to file
+        // Remove user from the map and save to file, the account itself stays in the store
         users.remove(username);
         saveUsers();
     }
@@ -109,12 +177,27 @@ public class GameManager {
     public boolean requireUser(String username) throws IOException {
         // Check for edge cases (e.g. invalid usernames) => throw exception 
         if (username == null || username.isEmpty()) throw new IllegalArgumentException("Username cannot be null or empty.");
-        if (!users.containsKey(username)) throw new IllegalArgumentException("User doesn't exist."); // User does not exist
+        if (!username.equals("admin") && !users.containsKey(username)) throw new IllegalArgumentException("User doesn't exist."); // User does not exist
 
         // Get password from console and verify
         String password = getPassword(System.console(), username);
+        return verifyUser(username, password);
+    }
+
+    /** verifyUser: check a password against the game admin or the shared account
+     * @param username Username to check
+     * @param password Password to verify
+     * @return true if the user exists and the password is correct
+     */
+    public boolean verifyUser(String username, String password) throws IOException {
+        if (username == null || username.isEmpty()) throw new IllegalArgumentException("Username cannot be null or empty.");
+        if (!username.equals("admin") && !users.containsKey(username)) throw new IllegalArgumentException("User doesn't exist."); // User does not exist
+
         String hashedPassword = hashPassword(password);
-        if (!hashedPassword.equals(users.get(username))) throw new IllegalArgumentException("Password is incorrect."); // Password is incorrect
+        String expected = username.equals("admin")
+            ? new String(Files.readAllBytes(adminFilePath), StandardCharsets.UTF_8).trim()
+            : accounts.getPasswordHash(users.get(username));
+        if (!hashedPassword.equals(expected)) throw new IllegalArgumentException("Password is incorrect."); // Password is incorrect
         
         return true; // Password is correct
     }
@@ -0,0 +1,217 @@
+import java.io.*;
+import java.lang.invoke.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class GameState implements Closeable {
+    public static final int MAX_PLAYERS = 10;
+    public static final int NOT_STARTED = -1; // Turn value while the admin holds the game
+
+    // Fixed binary layout of the state file: a header, then two copies of the state, the sequence number selects the current one
+    private static final int MAGIC = 0x43385354;  // "C8ST"
+    private static final int LAYOUT_VERSION = 2;  // Version 1 was a copy of the text files, without the discard pile
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int SEQ_OFFSET = 8;       // Odd while the other copy is being written, +2 per write
+    private static final int COPIES_OFFSET = 16;
+    private static final int TURN_OFFSET = 0;      // Player slot holding the turn, or NOT_STARTED
+    private static final int DRAWN_OFFSET = 4;     // 1 if the current player has drawn
+    private static final int CURSOR_OFFSET = 8;    // Number of cards left in the deck
+    private static final int DISCARDS_OFFSET = 12; // Number of cards in the discard pile
+    private static final int PLAYERS_OFFSET = 16;  // Number of player slots in use
+    private static final int DECK_OFFSET = 24;     // 52 card codes, cards [0, cursor) are still in the deck
+    private static final int DISCARD_OFFSET = 76;  // 52 card codes, the last one is the top card
+    private static final int HANDS_OFFSET = 128;   // One 52 bit card mask per player slot
+    private static final int COPY_BYTES = HANDS_OFFSET + MAX_PLAYERS * 8;
+    private static final int FILE_BYTES = COPIES_OFFSET + 2 * COPY_BYTES;
+    private static final int SPIN_LIMIT = 1000;    // Optimistic read attempts before waiting on the file lock
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    /** Snapshot: a consistent copy of the game state */
+    public static class Snapshot {
+        public final int turn;
+        public final boolean drawn;
+        public final int[] deck;       // Card codes, the last one is drawn next
+        public final int[] discard;    // Card codes, the last one is the top card
+        public final int discardTop;
+        public final long[] hands;     // Card masks per player slot
+
+        public Snapshot(int turn, boolean drawn, int[] deck, int[] discard, long[] hands) {
+            if (hands.length > MAX_PLAYERS) throw new IllegalArgumentException("Too many players: " + hands.length);
+            this.turn = turn;
+            this.drawn = drawn;
+            this.deck = deck;
+            this.discard = discard;
+            this.discardTop = discard.length == 0 ? -1 : discard[discard.length - 1];
+            this.hands = hands;
+        }
+
+        /** getHand: get the cards of a player slot
+         * * @param slot the player slot
+         * * @return the cards in the player's hand
+         */
+        public List<Card> getHand(int slot) {
+            List<Card> hand = new ArrayList<>();
+            for (long mask = hands[slot]; mask != 0; mask &= mask - 1) {
+                hand.add(Card.fromCode(Long.numberOfTrailingZeros(mask)));
+            }
+            return hand;
+        }
+
+        /** getDeck: get the cards left in the deck
+         * * @return the deck, the last card is drawn next
+         */
+        public List<Card> getDeck() { return cards(deck); }
+
+        /** getDiscard: get the discard pile
+         * * @return the discard pile, the last card is the top card
+         */
+        public List<Card> getDiscard() { return cards(discard); }
+
+        /** getDiscardTop: get the top card of the discard pile
+         * * @return the top card, or null if the discard pile is empty
+         */
+        public Card getDiscardTop() { return discardTop < 0 ? null : Card.fromCode(discardTop); }
+
+        private static List<Card> cards(int[] codes) {
+            List<Card> cards = new ArrayList<>(codes.length);
+            for (int code : codes) cards.add(Card.fromCode(code));
+            return cards;
+        }
+    }
+
+    /** Constructor: map the state file of a game, creating it if needed
+     * * @param stateFile the path of the state file
+     */
+    public GameState(Path stateFile) throws IOException {
+        this.channel = FileChannel.open(stateFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_BYTES);
+    }
+
+    /** close: release the mapping's file channel */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** lock: take the exclusive lock that serializes writers across processes
+     * * @return the lock, to be released by the caller
+     */
+    public FileLock lock() throws IOException {
+        return channel.lock();
+    }
+
+    /** write: publish a new snapshot, the caller must hold the lock
+     * The new state goes to the copy readers don't use, so a writer that dies mid-write never damages the current state.
+     * * @param snapshot the new state
+     */
+    public void write(Snapshot snapshot) {
+        boolean first = !isWritten(); // New file or older layout
+        long seq = first ? 0 : (long) LONGS.getVolatile(buffer, SEQ_OFFSET) & ~1L; // Odd: a previous writer died mid-write, its copy is overwritten below
+        LONGS.setVolatile(buffer, SEQ_OFFSET, seq + 1);
+        VarHandle.storeStoreFence(); // Readers of the copy written next time must see the odd sequence first
+
+        writeCopy(copyOffset(seq + 2), snapshot);
+        if (first) {
+            // Readers may pick either copy as soon as the header is valid
+            writeCopy(copyOffset(seq), snapshot);
+            VarHandle.storeStoreFence();
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(VERSION_OFFSET, LAYOUT_VERSION);
+        }
+
+        LONGS.setVolatile(buffer, SEQ_OFFSET, seq + 2);
+    }
+
+    /** writeCopy: write a snapshot into one of the two copies
+     * * @param copy the offset of the copy
+     * * @param snapshot the state
+     */
+    private void writeCopy(int copy, Snapshot snapshot) {
+        buffer.putInt(copy + TURN_OFFSET, snapshot.turn);
+        buffer.putInt(copy + DRAWN_OFFSET, snapshot.drawn ? 1 : 0);
+        buffer.putInt(copy + CURSOR_OFFSET, snapshot.deck.length);
+        buffer.putInt(copy + DISCARDS_OFFSET, snapshot.discard.length);
+        buffer.putInt(copy + PLAYERS_OFFSET, snapshot.hands.length);
+        for (int i = 0; i < snapshot.deck.length; i++) buffer.put(copy + DECK_OFFSET + i, (byte) snapshot.deck[i]);
+        for (int i = 0; i < snapshot.discard.length; i++) buffer.put(copy + DISCARD_OFFSET + i, (byte) snapshot.discard[i]);
+        for (int i = 0; i < MAX_PLAYERS; i++) buffer.putLong(copy + HANDS_OFFSET + i * 8, i < snapshot.hands.length ? snapshot.hands[i] : 0L);
+    }
+
+    /** read: read a consistent snapshot without taking the lock
+     * * @return the snapshot, or null if the state file was never written in this layout
+     */
+    public Snapshot read() throws IOException {
+        for (int i = 0; i < SPIN_LIMIT; i++) {
+            Snapshot snapshot = tryRead();
+            if (snapshot != null || !isWritten()) return snapshot;
+            Thread.onSpinWait();
+        }
+
+        // Writers keep overtaking this reader: wait for their lock instead
+        try (FileLock lock = channel.lock(0, Long.MAX_VALUE, true)) {
+            Snapshot snapshot = tryRead();
+            if (snapshot == null && isWritten()) throw new IllegalStateException("Game state changed under the shared lock.");
+            return snapshot;
+        }
+    }
+
+    /** isWritten: check if a state was ever published in this layout
+     * * @return false for a new file or an older layout
+     */
+    private boolean isWritten() {
+        return buffer.getInt(MAGIC_OFFSET) == MAGIC && buffer.getInt(VERSION_OFFSET) == LAYOUT_VERSION;
+    }
+
+    /** tryRead: one optimistic seqlock read of the current copy
+     * * @return the snapshot, or null if that copy was rewritten during the read or the file was never written
+     */
+    private Snapshot tryRead() {
+        long before = (long) LONGS.getVolatile(buffer, SEQ_OFFSET);
+        if (!isWritten()) return null;
+        VarHandle.loadLoadFence(); // The copies were complete before the header became valid
+
+        // The current copy is the one the last completed write published, it is only rewritten from sequence (before | 1) + 2 on
+        int copy = copyOffset(before & ~1L);
+        int turn = buffer.getInt(copy + TURN_OFFSET);
+        boolean drawn = buffer.getInt(copy + DRAWN_OFFSET) == 1;
+        int cursor = buffer.getInt(copy + CURSOR_OFFSET);
+        int discards = buffer.getInt(copy + DISCARDS_OFFSET);
+        int players = buffer.getInt(copy + PLAYERS_OFFSET);
+        if (cursor < 0 || cursor > 52 || discards < 0 || discards > 52 || players < 0 || players > MAX_PLAYERS) return retryOrFail(before);
+        int[] deck = new int[cursor];
+        for (int i = 0; i < cursor; i++) deck[i] = buffer.get(copy + DECK_OFFSET + i);
+        int[] discard = new int[discards];
+        for (int i = 0; i < discards; i++) discard[i] = buffer.get(copy + DISCARD_OFFSET + i);
+        long[] hands = new long[players];
+        for (int i = 0; i < players; i++) hands[i] = buffer.getLong(copy + HANDS_OFFSET + i * 8);
+
+        VarHandle.loadLoadFence();
+        long after = (long) LONGS.getVolatile(buffer, SEQ_OFFSET);
+        return after < (before | 1) + 2 ? new Snapshot(turn, drawn, deck, discard, hands) : null;
+    }
+
+    /** copyOffset: get the copy published by a completed write
+     * * @param seq the even sequence number the write ended with
+     * * @return the offset of the copy
+     */
+    private static int copyOffset(long seq) {
+        return COPIES_OFFSET + (int) ((seq >>> 1) & 1) * COPY_BYTES;
+    }
+
+    /** retryOrFail: handle out of range fields, which are only legal while a write is racing the read
+     * * @param before the sequence number seen at the start of the read
+     * * @return null so that the caller retries
+     */
+    private Snapshot retryOrFail(long before) {
+        VarHandle.loadLoadFence();
+        if ((long) LONGS.getVolatile(buffer, SEQ_OFFSET) < (before | 1) + 2) throw new IllegalStateException("Game state file is corrupt.");
+        return null;
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.*;
+
+public class HintBenchmark {
+    private static final long[] BUDGETS = { 10, 100, 1000 }; // Budgets compared against the reference, in milliseconds
+
+    /** Position: a seeded game position seen from the current player */
+    private static class Position {
+        final List<Card> hand;
+        final List<Card> discard;
+        final int[] opponentHandSizes;
+
+        Position(List<Card> hand, List<Card> discard, int[] opponentHandSizes) {
+            this.hand = hand;
+            this.discard = discard;
+            this.opponentHandSizes = opponentHandSizes;
+        }
+    }
+
+    /** main: measure how hint quality grows with the time budget
+     * Each position is searched once with a long reference budget, then with every budget in BUDGETS.
+     * A budget scores by how often it picks the reference move and by its regret: the reference win
+     * rate of the reference move minus the reference win rate of the move it picked.
+     * Usage: java -cp bin HintBenchmark [positions] [reference-ms] [seed]
+     */
+    public static void main(String[] args) {
+        int positions = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long referenceMillis = args.length > 1 ? Long.parseLong(args[1]) : 5000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        if (positions < 1) throw new IllegalArgumentException("Number of positions must be positive: " + positions);
+
+        HintEngine engine = new HintEngine();
+        Random random = new Random(seed);
+        int[] matches = new int[BUDGETS.length];
+        double[] regret = new double[BUDGETS.length];
+        long[] playouts = new long[BUDGETS.length];
+        long referencePlayouts = 0;
+        for (int p = 0; p < positions; p++) {
+            Position position = nextPosition(random);
+            HintEngine.Hint reference = engine.recommend(position.hand, position.discard, position.opponentHandSizes, false, referenceMillis, random.nextLong());
+            referencePlayouts += reference.getTotalPlayouts();
+            int best = reference.getBestIndex();
+            for (int b = 0; b < BUDGETS.length; b++) {
+                HintEngine.Hint hint = engine.recommend(position.hand, position.discard, position.opponentHandSizes, false, BUDGETS[b], random.nextLong());
+                int chosen = hint.getBestIndex(); // Same candidate order as the reference, the position is the same
+                if (chosen == best) matches[b]++;
+                regret[b] += reference.getWinRate(best) - reference.getWinRate(chosen);
+                playouts[b] += hint.getTotalPlayouts();
+            }
+        }
+
+        // Print the agreement with the reference and the mean regret per budget
+        System.out.printf("%d positions, reference %d ms (%d playouts on average), seed %d%n%n",
+            positions, referenceMillis, referencePlayouts / positions, seed);
+        System.out.printf("%-10s %14s %12s %14s%n", "budget", "avg playouts", "matches ref", "mean regret");
+        for (int b = 0; b < BUDGETS.length; b++) {
+            System.out.printf("%-10s %14d %11.0f%% %12.2f pp%n",
+                BUDGETS[b] + " ms", playouts[b] / positions, 100.0 * matches[b] / positions, 100 * regret[b] / positions);
+        }
+    }
+
+    /** nextPosition: deal a random position where the current player has a real choice
+     * * @param random the benchmark random number generator
+     * * @return a position with at least one playable card besides drawing
+     */
+    private static Position nextPosition(Random random) {
+        while (true) {
+            List<Card> deck = new ArrayList<>();
+            for (int code = 0; code < 52; code++) deck.add(Card.fromCode(code));
+            Collections.shuffle(deck, random);
+
+            // Hand, discard pile and 1 to 3 opponents, all drawn from the shuffled deck
+            List<Card> hand = new ArrayList<>(deck.subList(0, 2 + random.nextInt(6)));
+            List<Card> discard = new ArrayList<>(deck.subList(hand.size(), hand.size() + 1 + random.nextInt(10)));
+            int[] opponentHandSizes = new int[1 + random.nextInt(3)];
+            for (int i = 0; i < opponentHandSizes.length; i++) opponentHandSizes[i] = 1 + random.nextInt(7);
+
+            // Keep positions with at least two playable cards, otherwise the choice is trivial
+            Card top = discard.get(discard.size() - 1);
+            int playable = 0;
+            for (Card card : hand) if (card.isPlayable(top)) playable++;
+            if (playable >= 2) return new Position(hand, discard, opponentHandSizes);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+public class HintEngine {
+    private static final int DECK_SIZE = 52;
+    private static final int RANKS = 13;
+    private static final int EIGHT = Card.Rank.EIGHT.ordinal();
+    private static final int MAX_TURNS = 500; // Playouts longer than this count as a loss
+
+    private final int threads;
+
+    /** Hint: the recommended move and the statistics behind it */
+    public static class Hint {
+        public final List<String> moves;  // Candidate moves, e.g. "H8", "draw" or "pass"
+        public final long[] playouts;     // Playouts per candidate move
+        public final long[] wins;         // Wins per candidate move
+        public final long elapsedNanos;   // Wall time spent searching
+
+        private Hint(List<String> moves, long[] playouts, long[] wins, long elapsedNanos) {
+            this.moves = moves;
+            this.playouts = playouts;
+            this.wins = wins;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** getBestMove: get the candidate move with the highest win rate
+         * * @return the recommended move
+         */
+        public String getBestMove() { return moves.get(getBestIndex()); }
+
+        /** getBestIndex: get the index of the candidate move with the highest win rate
+         * * @return the index of the recommended move
+         */
+        public int getBestIndex() {
+            int best = 0;
+            for (int i = 1; i < moves.size(); i++) {
+                if (getWinRate(i) > getWinRate(best)) best = i;
+            }
+            return best;
+        }
+
+        /** getWinRate: get the win rate of a candidate move
+         * * @param i the index of the candidate move
+         * * @return the fraction of playouts won after that move
+         */
+        public double getWinRate(int i) { return playouts[i] == 0 ? 0 : (double) wins[i] / playouts[i]; }
+
+        /** getTotalPlayouts: get the number of playouts over all candidate moves
+         * * @return the total number of playouts
+         */
+        public long getTotalPlayouts() {
+            long total = 0;
+            for (long p : playouts) total += p;
+            return total;
+        }
+
+        /** getPlayoutsPerSecond: get the search throughput
+         * * @return the number of playouts per second
+         */
+        public double getPlayoutsPerSecond() { return elapsedNanos == 0 ? 0 : getTotalPlayouts() * 1e9 / elapsedNanos; }
+    }
+
+    /** Constructor: create an engine using all available cores */
+    public HintEngine() { this(Runtime.getRuntime().availableProcessors()); }
+
+    /** Constructor: create an engine with a fixed number of threads
+     * * @param threads the number of playout threads
+     */
+    public HintEngine(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        this.threads = threads;
+    }
+
+    /** recommend: run playouts in parallel until the time budget runs out
+     * * @param hand the current player's hand
+     * * @param discard the discard pile, top card last
+     * * @param opponentHandSizes the hand sizes of the other players, in turn order after the current player
+     * * @param hasDrawn true if the current player has already drawn this turn
+     * * @param budgetMillis the time budget in milliseconds
+     * * @param seed the seed for the random number generators
+     * * @return the recommended move and its statistics
+     */
+    public Hint recommend(List<Card> hand, List<Card> discard, int[] opponentHandSizes, boolean hasDrawn, long budgetMillis, long seed) {
+        if (budgetMillis <= 0) throw new IllegalArgumentException("Time budget must be positive: " + budgetMillis);
+        if (discard.isEmpty()) throw new IllegalArgumentException("Discard pile is empty.");
+        if (opponentHandSizes.length < 1) throw new IllegalArgumentException("At least one opponent is required.");
+
+        // Encode the known cards, everything else is unseen (deck and opponents' hands)
+        boolean[] seen = new boolean[DECK_SIZE];
+        int[] handCodes = encode(hand, seen);
+        int[] discardCodes = encode(discard, seen);
+        int[] unseen = new int[DECK_SIZE - handCodes.length - discardCodes.length];
+        for (int c = 0, n = 0; c < DECK_SIZE; c++) if (!seen[c]) unseen[n++] = c;
+        int opponentCards = 0;
+        for (int size : opponentHandSizes) opponentCards += size;
+        if (opponentCards > unseen.length) throw new IllegalArgumentException("Opponents hold more cards than are unseen: " + opponentCards);
+
+        // Candidate moves: every playable card, then drawing (or passing once drawn)
+        int top = discardCodes[discardCodes.length - 1];
+        List<String> moves = new ArrayList<>();
+        List<Integer> moveCards = new ArrayList<>();
+        for (int i = 0; i < handCodes.length; i++) {
+            if (isPlayable(handCodes[i], top)) {
+                moves.add(hand.get(i).toString());
+                moveCards.add(handCodes[i]);
+            }
+        }
+        moves.add(hasDrawn ? "pass" : "draw");
+        moveCards.add(-1);
+        int[] candidates = moveCards.stream().mapToInt(Integer::intValue).toArray();
+
+        // Run one worker per thread, each with its own random generator and playout state
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        SplittableRandom root = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                Playout playout = new Playout(root.split(), handCodes, discardCodes, unseen, opponentHandSizes, candidates, hasDrawn);
+                results.add(pool.submit(() -> playout.runUntil(deadline)));
+            }
+
+            // Merge the per-thread counters
+            long[] playouts = new long[candidates.length];
+            long[] wins = new long[candidates.length];
+            for (Future<long[]> result : results) {
+                long[] counts = result.get();
+                for (int i = 0; i < candidates.length; i++) {
+                    playouts[i] += counts[i];
+                    wins[i] += counts[candidates.length + i];
+                }
+            }
+            return new Hint(moves, playouts, wins, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Hint search interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Hint search failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** encode: encode cards with Card.toCode and mark them as seen
+     * * @param cards the cards to encode
+     * * @param seen the seen flags to update
+     * * @return the encoded cards
+     */
+    private static int[] encode(List<Card> cards, boolean[] seen) {
+        int[] codes = new int[cards.size()];
+        for (int i = 0; i < codes.length; i++) {
+            Card card = cards.get(i);
+            int code = card.toCode();
+            if (seen[code]) throw new IllegalArgumentException("Duplicate card: " + card);
+            seen[code] = true;
+            codes[i] = code;
+        }
+        return codes;
+    }
+
+    /** isPlayable: same rule as Card.isPlayable on encoded cards */
+    private static boolean isPlayable(int card, int top) {
+        return card % RANKS == top % RANKS || card / RANKS == top / RANKS || card % RANKS == EIGHT;
+    }
+
+    /** Playout: per-thread playout state, allocated once and reused for every playout */
+    private static class Playout {
+        private final SplittableRandom random;
+        private final int[] baseHand, baseDiscard, unseen, opponentHandSizes, candidates;
+        private final boolean hasDrawn;
+        private final int players;
+
+        private final int[] deck = new int[DECK_SIZE];
+        private final int[] discard = new int[DECK_SIZE];
+        private final int[][] hands;
+        private final int[] handSizes;
+        private int deckSize, discardSize;
+
+        Playout(SplittableRandom random, int[] hand, int[] discard, int[] unseen, int[] opponentHandSizes, int[] candidates, boolean hasDrawn) {
+            this.random = random;
+            this.baseHand = hand;
+            this.baseDiscard = discard;
+            this.unseen = unseen.clone();
+            this.opponentHandSizes = opponentHandSizes;
+            this.candidates = candidates;
+            this.hasDrawn = hasDrawn;
+            this.players = opponentHandSizes.length + 1;
+            this.hands = new int[players][DECK_SIZE];
+            this.handSizes = new int[players];
+        }
+
+        /** runUntil: run playouts round-robin over the candidate moves until the deadline
+         * * @param deadline the System.nanoTime deadline
+         * * @return playouts per candidate followed by wins per candidate
+         */
+        long[] runUntil(long deadline) {
+            long[] counts = new long[candidates.length * 2];
+            int move = 0;
+            do {
+                // Check the clock every few playouts to keep it off the hot path
+                for (int i = 0; i < 16; i++) {
+                    counts[move]++;
+                    if (playout(candidates[move])) counts[candidates.length + move]++;
+                    move = (move + 1) % candidates.length;
+                }
+            } while (System.nanoTime() < deadline);
+            return counts;
+        }
+
+        /** playout: determinize the unseen cards, apply a root move and play to the end
+         * * @param rootCard the card to play first, or -1 to draw (or pass once drawn)
+         * * @return true if the current player (player 0) wins
+         */
+        private boolean playout(int rootCard) {
+            deal();
+
+            // Apply the root move for player 0
+            if (rootCard >= 0) {
+                removeFromHand(0, rootCard);
+                discard[discardSize++] = rootCard;
+            } else if (!hasDrawn) {
+                drawAndMaybePlay(0);
+            }
+            if (handSizes[0] == 0) return true;
+
+            // Every player then plays a random playable card, or draws and plays it if possible
+            int player = 1 % players;
+            for (int turn = 0; turn < MAX_TURNS; turn++) {
+                int card = randomPlayable(player);
+                if (card >= 0) {
+                    removeFromHand(player, card);
+                    discard[discardSize++] = card;
+                } else {
+                    drawAndMaybePlay(player);
+                }
+                if (handSizes[player] == 0) return player == 0;
+                player = (player + 1) % players;
+            }
+            return false;
+        }
+
+        /** deal: shuffle the unseen cards into the opponents' hands and the deck */
+        private void deal() {
+            for (int i = unseen.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = unseen[i]; unseen[i] = unseen[j]; unseen[j] = tmp;
+            }
+            System.arraycopy(baseHand, 0, hands[0], 0, baseHand.length);
+            handSizes[0] = baseHand.length;
+            int next = 0;
+            for (int p = 1; p < players; p++) {
+                int size = opponentHandSizes[p - 1];
+                System.arraycopy(unseen, next, hands[p], 0, size);
+                handSizes[p] = size;
+                next += size;
+            }
+            deckSize = unseen.length - next;
+            System.arraycopy(unseen, next, deck, 0, deckSize);
+            System.arraycopy(baseDiscard, 0, discard, 0, baseDiscard.length);
+            discardSize = baseDiscard.length;
+        }
+
+        /** randomPlayable: pick a random playable card from a hand
+         * * @param player the player index
+         * * @return the card, or -1 if no card is playable
+         */
+        private int randomPlayable(int player) {
+            int top = discard[discardSize - 1];
+            int chosen = -1;
+            int seen = 0;
+            int[] hand = hands[player];
+            for (int i = 0; i < handSizes[player]; i++) {
+                if (isPlayable(hand[i], top) && random.nextInt(++seen) == 0) chosen = hand[i];
+            }
+            return chosen;
+        }
+
+        /** drawAndMaybePlay: draw one card (reshuffling if needed), then play a random playable card or pass
+         * * @param player the player index
+         */
+        private void drawAndMaybePlay(int player) {
+            if (deckSize == 0) reshuffle();
+            if (deckSize == 0) return; // Nothing left to draw, pass
+            hands[player][handSizes[player]++] = deck[--deckSize];
+            int card = randomPlayable(player);
+            if (card >= 0) {
+                removeFromHand(player, card);
+                discard[discardSize++] = card;
+            }
+        }
+
+        /** reshuffle: move the discard pile (except the top card) into the deck */
+        private void reshuffle() {
+            int top = discard[discardSize - 1];
+            for (int i = 0; i < discardSize - 1; i++) deck[deckSize++] = discard[i];
+            discard[0] = top;
+            discardSize = 1;
+            for (int i = deckSize - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = deck[i]; deck[i] = deck[j]; deck[j] = tmp;
+            }
+        }
+
+        /** removeFromHand: remove a card from a hand by swapping in the last card */
+        private void removeFromHand(int player, int card) {
+            int[] hand = hands[player];
+            for (int i = 0; i < handSizes[player]; i++) {
+                if (hand[i] == card) {
+                    hand[i] = hand[--handSizes[player]];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import java.io.*;
+import java.nio.file.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class ScratchGames implements Closeable {
+    public static final String ADMIN = "admin-pw"; // Admin password of every scratch game, players use their name
+
+    private final Path dir;
+
+    /** Constructor: create a temporary games folder and point the games of this JVM at it
+     * * @param prefix the prefix of the temporary directory name
+     */
+    public ScratchGames(String prefix) throws IOException {
+        this.dir = Files.createTempDirectory(prefix);
+        System.setProperty("crazyeights.games", dir.toString());
+    }
+
+    /** getDir: get the games folder
+     * * @return the temporary directory
+     */
+    public Path getDir() { return dir; }
+
+    /** createGame: create a game through the CLI, each player's password is its name
+     * * @param game the game name
+     * * @param start true to start the game once the players joined
+     * * @param players the players in join order
+     */
+    public void createGame(String game, boolean start, String... players) throws Exception {
+        run(new String[] { "--init", "--game", game }, ADMIN);
+        for (String player : players) run(new String[] { "--add-user", player, "--game", game }, ADMIN, player);
+        if (start) run(new String[] { "--start", "--game", game }, ADMIN);
+    }
+
+    /** run: run a CLI command in-process, answering its password prompts from standard input
+     * * @param args the CLI arguments
+     * * @param passwords the passwords in prompt order
+     */
+    public static void run(String[] args, String... passwords) throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (String password : passwords) input.append(password).append('\n');
+        System.setIn(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)));
+        CrazyEights.run(args);
+    }
+
+    /** close: delete the games folder */
+    @Override
+    public void close() throws IOException {
+        try (var paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+import java.io.*;
+import java.nio.file.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class StartupBenchmark {
+    private static final String ARCHIVE = "crazy-eights.jsa"; // AppCDS archive, next to the jar
+    private static final String ADMIN = ScratchGames.ADMIN;
+    private static final String[] PLAYERS = { "alice", "bob" };
+    private static final String EXTRA = "carol";   // Added and removed again before the start
+    private static final String HINT_BUDGET = "50"; // Milliseconds of search included in the hint time
+
+    /** main: time each CLI command from launch to exit, with and without the AppCDS archive
+     * Usage: java -cp lib/crazy-eights.jar StartupBenchmark [runs]
+     *        java -XX:ArchiveClassesAtExit=lib/crazy-eights.jsa -cp lib/crazy-eights.jar StartupBenchmark --train
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--train")) {
+            train();
+            return;
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        if (runs < 1) throw new IllegalArgumentException("Number of runs must be positive: " + runs);
+
+        // Compare the plain JVM with the archive when the build generated one
+        // The class path is passed on unchanged, the archive only matches the exact path it was trained with
+        Path classes = Paths.get(System.getProperty("java.class.path").split(File.pathSeparator)[0]);
+        Path archive = classes.toAbsolutePath().resolveSibling(ARCHIVE); // AppCDS only archives classes loaded from a jar
+        Map<String, List<Long>> plain = benchmark(classes, List.of(), runs);
+        Map<String, List<Long>> shared = Files.exists(archive)
+            ? benchmark(classes, List.of("-XX:SharedArchiveFile=" + archive), runs) : null;
+
+        // Print the median and min wall time of each command
+        System.out.printf("%-12s %12s %12s", "command", "median ms", "min ms");
+        if (shared != null) System.out.printf(" %12s %12s %8s", "cds median", "cds min", "speedup");
+        System.out.println();
+        for (String command : plain.keySet()) {
+            double median = median(plain.get(command));
+            System.out.printf("%-12s %12.1f %12.1f", command, median, Collections.min(plain.get(command)) / 1e6);
+            if (shared != null && shared.containsKey(command)) {
+                double sharedMedian = median(shared.get(command));
+                System.out.printf(" %12.1f %12.1f %7.2fx", sharedMedian, Collections.min(shared.get(command)) / 1e6, median / sharedMedian);
+            }
+            System.out.println();
+        }
+        System.out.println("\nhint includes a " + HINT_BUDGET + " ms search, play runs only when the deal gives bob a playable card.");
+        if (shared == null) System.out.println("\nNo " + archive + " found, build it to compare with AppCDS.");
+    }
+
+    /** benchmark: run every command in a fresh scratch directory
+     * * @param classes the jar (or directory) holding the compiled classes
+     * * @param jvmOptions extra JVM options
+     * * @param runs the number of samples per command
+     * * @return wall times in nanoseconds per command, in execution order
+     */
+    private static Map<String, List<Long>> benchmark(Path classes, List<String> jvmOptions, int runs) throws Exception {
+        Map<String, List<Long>> times = new LinkedHashMap<>();
+        try (ScratchGames scratch = new ScratchGames("crazy-eights-bench")) {
+            Path dir = scratch.getDir();
+            // One game per run so that state changing commands always start from the same point
+            for (int i = 0; i < runs; i++) {
+                String game = "bench" + i;
+                time(times, "init", classes, jvmOptions, dir, ADMIN, "--init", "--game", game);
+                for (String player : PLAYERS) {
+                    time(times, "add-user", classes, jvmOptions, dir, ADMIN + "\n" + player, "--add-user", player, "--game", game);
+                }
+                time(times, "add-user", classes, jvmOptions, dir, ADMIN + "\n" + EXTRA, "--add-user", EXTRA, "--game", game);
+                time(times, "remove-user", classes, jvmOptions, dir, ADMIN, "--remove-user", EXTRA, "--game", game);
+                time(times, "start", classes, jvmOptions, dir, ADMIN, "--start", "--game", game);
+                time(times, "order", classes, jvmOptions, dir, PLAYERS[1], "--order", "--user", PLAYERS[1], "--game", game);
+                time(times, "cards", classes, jvmOptions, dir, PLAYERS[1], "--cards", PLAYERS[1], "--user", PLAYERS[1], "--game", game);
+                time(times, "draw", classes, jvmOptions, dir, PLAYERS[0], "--draw", "--user", PLAYERS[0], "--game", game);
+                time(times, "pass", classes, jvmOptions, dir, PLAYERS[0], "--pass", "--user", PLAYERS[0], "--game", game);
+                time(times, "hint", classes, jvmOptions, dir, PLAYERS[1], "--hint", "--user", PLAYERS[1], "--budget", HINT_BUDGET, "--game", game);
+
+                // Play needs a playable card, draw once if there is none; the deal decides, so a run may have no play sample
+                String card = playableCard(dir.resolve(game), PLAYERS[1]);
+                if (card == null) {
+                    time(times, "draw", classes, jvmOptions, dir, PLAYERS[1], "--draw", "--user", PLAYERS[1], "--game", game);
+                    card = playableCard(dir.resolve(game), PLAYERS[1]);
+                }
+                if (card != null) time(times, "play", classes, jvmOptions, dir, PLAYERS[1], "--play", card, "--user", PLAYERS[1], "--game", game);
+            }
+        }
+        return times;
+    }
+
+    /** time: launch one CLI command and record its wall time
+     * * @param times the samples per command
+     * * @param name the command name
+     * * @param classes the jar (or directory) holding the compiled classes
+     * * @param jvmOptions extra JVM options
+     * * @param dir the scratch directory holding the games
+     * * @param passwords the passwords written to standard input, one per line
+     * * @param args the CLI arguments
+     */
+    private static void time(Map<String, List<Long>> times, String name, Path classes, List<String> jvmOptions, Path dir, String passwords, String... args) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-Dcrazyeights.games=" + dir, "-cp", classes.toString(), "CrazyEights"));
+        command.addAll(List.of(args));
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try (Writer stdin = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8)) {
+            stdin.write(passwords + "\n");
+        }
+        byte[] output = process.getInputStream().readAllBytes();
+        int exit = process.waitFor();
+        long elapsed = System.nanoTime() - start;
+
+        if (exit != 0) throw new IllegalStateException("Command failed: " + String.join(" ", args) + "\n" + new String(output, StandardCharsets.UTF_8));
+        times.computeIfAbsent(name, k -> new ArrayList<>()).add(elapsed);
+    }
+
+    /** train: run every command in-process so that -XX:ArchiveClassesAtExit sees their classes */
+    private static void train() throws Exception {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try (ScratchGames scratch = new ScratchGames("crazy-eights-train")) {
+            Path gameDir = scratch.getDir().resolve("train");
+            scratch.createGame("train", false, PLAYERS);
+            ScratchGames.run(new String[] { "--add-user", EXTRA, "--game", "train" }, ADMIN, EXTRA);
+            ScratchGames.run(new String[] { "--remove-user", EXTRA, "--game", "train" }, ADMIN);
+            ScratchGames.run(new String[] { "--start", "--game", "train" }, ADMIN);
+            ScratchGames.run(new String[] { "--order", "--user", "bob", "--game", "train" }, "bob");
+            ScratchGames.run(new String[] { "--cards", "bob", "--user", "bob", "--game", "train" }, "bob");
+            ScratchGames.run(new String[] { "--draw", "--user", "alice", "--game", "train" }, "alice");
+            ScratchGames.run(new String[] { "--pass", "--user", "alice", "--game", "train" }, "alice");
+            ScratchGames.run(new String[] { "--hint", "--user", "bob", "--budget", HINT_BUDGET, "--game", "train" }, "bob");
+            String card = playableCard(gameDir, "bob");
+            if (card == null) {
+                ScratchGames.run(new String[] { "--draw", "--user", "bob", "--game", "train" }, "bob");
+                card = playableCard(gameDir, "bob");
+            }
+            if (card != null) ScratchGames.run(new String[] { "--play", card, "--user", "bob", "--game", "train" }, "bob");
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /** playableCard: find a card the player can play, from the state file
+     * * @param gameDir the game directory
+     * * @param player the player
+     * * @return the card, or null if none matches the discard top
+     */
+    private static String playableCard(Path gameDir, String player) throws IOException {
+        try (GameState state = new GameState(gameDir.resolve("state.bin"))) {
+            GameState.Snapshot snapshot = state.read();
+            for (Card card : snapshot.getHand(Arrays.asList(PLAYERS).indexOf(player))) {
+                if (card.isPlayable(snapshot.getDiscardTop())) return card.toString();
+            }
+        }
+        return null;
+    }
+
+    private static double median(List<Long> samples) {
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        int n = sorted.size();
+        return (n % 2 == 1 ? sorted.get(n / 2) : (sorted.get(n / 2 - 1) + sorted.get(n / 2)) / 2.0) / 1e6;
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.*;
+import java.nio.file.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class StateContention {
+    private static final String GAME = "contention";
+    private static final String[] PLAYERS = { "alice", "bob", "carol", "dave" }; // Passwords are the names
+    private static final long TIMEOUT_SECONDS = 120;
+
+    /** main: run writer and reader JVMs against one state file and check that every snapshot is consistent
+     * Writers play the game through Game, racing for the turn. One extra writer is killed midway, wherever
+     * it is in a move. Readers check every seqlock snapshot: all 52 cards exactly once over the deck, the
+     * discard pile and the hands, the turn within the player slots, no cards once the game is reset.
+     * The state must stay readable and playable after the kill. Exits with status 1 if any check fails,
+     * so a build can run it.
+     * Usage: java -cp bin StateContention [writers] [readers] [moves per writer]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--writer")) {
+            writer(Paths.get(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--reader")) {
+            System.exit(reader(Paths.get(args[1])) ? 0 : 1);
+        }
+
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int moves = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        if (writers < 1 || readers < 1 || moves < 1) throw new IllegalArgumentException("Writers, readers and moves must be positive.");
+
+        boolean passed = true;
+        long start;
+        try (ScratchGames scratch = new ScratchGames("crazy-eights-contention")) {
+            // Scratch game with four players, started in-process
+            Path dir = scratch.getDir();
+            scratch.createGame(GAME, true, PLAYERS);
+            start = System.nanoTime();
+
+            List<Process> readerProcesses = new ArrayList<>();
+            for (int r = 0; r < readers; r++) readerProcesses.add(launch(dir, "--reader", dir.toString()));
+            List<Process> writerProcesses = new ArrayList<>();
+            for (int w = 0; w < writers; w++) writerProcesses.add(launch(dir, "--writer", dir.toString(), String.valueOf(moves)));
+
+            // A writer that dies mid-move must not leave a state the others can't read or play on
+            Process victim = launch(dir, "--writer", dir.toString(), String.valueOf(Integer.MAX_VALUE));
+            Thread.sleep(1000);
+            victim.destroyForcibly().waitFor();
+            System.out.println("writer " + victim.pid() + ": killed");
+
+            // Readers run until the writers are done
+            for (Process writer : writerProcesses) passed &= finish(writer, "writer");
+            Files.createFile(dir.resolve("stop"));
+            for (Process reader : readerProcesses) passed &= finish(reader, "reader");
+
+            // The final state, without contention
+            try (GameState state = new GameState(dir.resolve(GAME).resolve("state.bin"))) {
+                String broken = checkSnapshot(state.read());
+                if (broken != null) {
+                    System.out.println("final: " + broken);
+                    passed = false;
+                }
+            }
+        }
+
+        System.out.printf("%s: %d writer and %d reader JVMs in %d ms%n",
+            passed ? "Consistent" : "INCONSISTENT", writers, readers, (System.nanoTime() - start) / 1_000_000);
+        if (!passed) System.exit(1);
+    }
+
+    /** launch: start a writer or reader JVM with the same class path
+     * * @param dir the scratch directory holding the games
+     * * @param args the role and its arguments
+     * * @return the process, its output merged into one stream
+     */
+    private static Process launch(Path dir, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(List.of("-Dcrazyeights.games=" + dir, "-cp", System.getProperty("java.class.path"), "StateContention"));
+        command.addAll(List.of(args));
+        return new ProcessBuilder(command).redirectErrorStream(true).start();
+    }
+
+    /** finish: wait for a child JVM and print its report
+     * * @param process the child process
+     * * @param role "writer" or "reader"
+     * * @return true if it exited cleanly
+     */
+    private static boolean finish(Process process, String role) throws Exception {
+        CompletableFuture<byte[]> output = CompletableFuture.supplyAsync(() -> {
+            try { return process.getInputStream().readAllBytes(); } catch (IOException e) { return new byte[0]; }
+        });
+        if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            System.out.println(role + " " + process.pid() + ": timed out");
+            return false;
+        }
+        System.out.print(role + " " + process.pid() + ": " + new String(output.get(), StandardCharsets.UTF_8));
+        return process.exitValue() == 0;
+    }
+
+    /** writer: play moves from a possibly stale snapshot, losing races to other writers is expected
+     * * @param dir the scratch directory holding the games
+     * * @param moves the number of moves to attempt
+     */
+    private static void writer(Path dir, int moves) throws IOException {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // Game prints wins and reshuffles
+        int applied = 0;
+        int lost = 0;
+        int restarts = 0;
+        try (Game game = new Game(GAME)) {
+            List<String> players = game.getPlayers();
+            for (int i = 0; i < moves; i++) {
+                GameState.Snapshot snapshot = game.readState();
+                try {
+                    if (snapshot.turn == GameState.NOT_STARTED) {
+                        GameManager.supplyPassword(ScratchGames.ADMIN);
+                        game.startGame();
+                        restarts++;
+                    } else {
+                        String player = players.get(snapshot.turn);
+                        GameManager.supplyPassword(player);
+                        Card playable = null;
+                        for (Card card : snapshot.getHand(snapshot.turn)) {
+                            if (card.isPlayable(snapshot.getDiscardTop())) { playable = card; break; }
+                        }
+                        if (playable != null) game.playCard(player, playable.toString());
+                        else if (!snapshot.drawn) game.drawCard(player);
+                        else game.passTurn(player);
+                    }
+                    applied++;
+                } catch (IllegalStateException | IllegalArgumentException e) {
+                    lost++; // Another writer moved first
+                }
+            }
+        } finally {
+            GameManager.supplyPassword(null);
+            System.setOut(out);
+        }
+        System.out.println(applied + " moves applied, " + lost + " lost races, " + restarts + " restarts after a win");
+    }
+
+    /** reader: read snapshots until the coordinator creates the stop file
+     * * @param dir the scratch directory holding the games
+     * * @return true if every snapshot was consistent
+     */
+    private static boolean reader(Path dir) throws IOException {
+        long reads = 0;
+        try (GameState state = new GameState(dir.resolve(GAME).resolve("state.bin"))) {
+            while (!Files.exists(dir.resolve("stop"))) {
+                String broken = checkSnapshot(state.read());
+                reads++;
+                if (broken != null) {
+                    System.out.println("torn or inconsistent snapshot after " + reads + " reads: " + broken);
+                    return false;
+                }
+            }
+        }
+        System.out.println(reads + " optimistic reads");
+        return true;
+    }
+
+    /** checkSnapshot: check the invariants of a snapshot
+     * * @param snapshot the snapshot
+     * * @return the broken invariant, or null
+     */
+    private static String checkSnapshot(GameState.Snapshot snapshot) {
+        if (snapshot == null) return "state file never written";
+        if (snapshot.hands.length != PLAYERS.length) return "snapshot has " + snapshot.hands.length + " player slots";
+
+        // After a win the admin holds the game and there are no cards in play
+        if (snapshot.turn == GameState.NOT_STARTED) {
+            long cards = snapshot.deck.length + snapshot.discard.length;
+            for (long hand : snapshot.hands) cards += Long.bitCount(hand);
+            return cards == 0 && !snapshot.drawn ? null : cards + " cards in play while not started";
+        }
+        if (snapshot.turn < 0 || snapshot.turn >= snapshot.hands.length) return "turn held by slot " + snapshot.turn;
+        if (snapshot.discard.length == 0) return "no discard top while started";
+
+        // The deck, the discard pile and the hands hold every card exactly once
+        long seen = 0;
+        for (int[] pile : new int[][] { snapshot.deck, snapshot.discard }) {
+            for (int code : pile) {
+                if (code < 0 || code >= 52 || (seen & (1L << code)) != 0) return "card code " + code + " in play twice";
+                seen |= 1L << code;
+            }
+        }
+        for (long hand : snapshot.hands) {
+            if ((seen & hand) != 0) return "a hand shares cards with the piles or another hand";
+            seen |= hand;
+        }
+        return seen == (1L << 52) - 1 ? null : (52 - Long.bitCount(seen)) + " cards missing";
+    }
+}